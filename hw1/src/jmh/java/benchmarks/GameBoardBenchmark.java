@@ -0,0 +1,134 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import models.GameBoard;
+import models.JsonEncoder;
+import models.Message;
+import models.Move;
+import models.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the GameBoard operations every move goes through, and the JSON
+ * encoding of a board and of a move's Message by Gson and by the
+ * JsonEncoder, on the standard board and on a large one.
+ * @author kenyaplenty
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameBoardBenchmark {
+
+  private static final Gson GSON = new Gson();
+
+  @Param({"3", "15"})
+  int size;
+
+  Player player1;
+  Player player2;
+
+  /** A board in the middle of a game, with about a third of the cells marked. */
+  GameBoard midGame;
+
+  Message message = new Message(true, 100, "");
+
+  /** Every cell of the board once, for both players in turn. */
+  Move[] moves;
+
+  int next;
+
+  /**
+   * Builds the mid-game board and the move list.
+   */
+  @Setup
+  public void init() {
+    player1 = new Player('X', 1);
+    player2 = new Player('O', 2);
+    moves = new Move[size * size];
+    for (int cell = 0; cell < moves.length; cell++) {
+      moves[cell] = new Move(cell % 2 == 0 ? player1 : player2, cell / size, cell % size);
+    }
+    midGame = newGame();
+    for (int cell = 0; cell < moves.length / 3; cell++) {
+      midGame.addMoveToBoardAndSwitchesTurns(moves[cell]);
+    }
+  }
+
+  /**
+   * Returns a started game with nobody's mark on it.
+   */
+  private GameBoard newGame() {
+    GameBoard gameBoard = new GameBoard(size, Math.min(size, 5));
+    gameBoard.setP1(player1);
+    gameBoard.setP2(player2);
+    gameBoard.setGameStarted(true);
+    return gameBoard;
+  }
+
+  @Benchmark
+  public boolean isValidMove() {
+    next = (next + 1) % moves.length;
+    return midGame.isValidMove(moves[next]);
+  }
+
+  @Benchmark
+  public boolean playerWonGame() {
+    return midGame.playerWonGame(player1);
+  }
+
+  /**
+   * Fills a new board cell by cell. Reported per board, not per move.
+   */
+  @Benchmark
+  public GameBoard addMoveToBoardAndSwitchesTurns() {
+    GameBoard gameBoard = newGame();
+    for (Move move : moves) {
+      gameBoard.addMoveToBoardAndSwitchesTurns(move);
+    }
+    return gameBoard;
+  }
+
+  @Benchmark
+  public String gsonToJson() {
+    return GSON.toJson(midGame);
+  }
+
+  /**
+   * The bytes an HTTP response gets through Gson, as the snapshot used to build them.
+   */
+  @Benchmark
+  public byte[] gsonToUtf8() {
+    return GSON.toJson(midGame).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public byte[] encoderToUtf8() {
+    return JsonEncoder.toUtf8(midGame);
+  }
+
+  @Benchmark
+  public byte[] gsonMessageToUtf8() {
+    return GSON.toJson(message).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public byte[] encoderMessageToUtf8() {
+    return JsonEncoder.toUtf8(message);
+  }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import models.GameBoard;
+import models.Move;
+import models.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Plays whole games of random moves the way PlayGame checks them: valid
+ * move, add it, check both players for a win and the board for a draw.
+ * @author kenyaplenty
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayoutBenchmark {
+
+  @Param({"3", "15"})
+  int size;
+
+  Player player1;
+  Player player2;
+
+  SplittableRandom random;
+
+  int[] cells;
+
+  /**
+   * Creates the players and a fixed seed so every run plays the same games.
+   */
+  @Setup
+  public void init() {
+    player1 = new Player('X', 1);
+    player2 = new Player('O', 2);
+    random = new SplittableRandom(42);
+    cells = new int[size * size];
+    for (int cell = 0; cell < cells.length; cell++) {
+      cells[cell] = cell;
+    }
+  }
+
+  /**
+   * Plays one random game to its end.
+   * @return the winner, or 0 for a draw
+   */
+  @Benchmark
+  public int randomPlayout() {
+    GameBoard gameBoard = new GameBoard(size, Math.min(size, 5));
+    gameBoard.setP1(player1);
+    gameBoard.setP2(player2);
+    gameBoard.setGameStarted(true);
+    for (int i = cells.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swapped = cells[i];
+      cells[i] = cells[j];
+      cells[j] = swapped;
+    }
+
+    for (int i = 0; i < cells.length && gameBoard.getGameStarted(); i++) {
+      Move move = new Move(i % 2 == 0 ? player1 : player2, cells[i] / size, cells[i] % size);
+      if (gameBoard.isValidMove(move)) {
+        gameBoard.addMoveToBoardAndSwitchesTurns(move);
+        if (gameBoard.playerWonGame(player1)) {
+          gameBoard.endsGameAndSetsWinner(player1);
+        } else if (gameBoard.playerWonGame(player2)) {
+          gameBoard.endsGameAndSetsWinner(player2);
+        } else if (gameBoard.isGameDraw()) {
+          gameBoard.setGameDraw();
+        }
+      }
+    }
+    return gameBoard.getWinner();
+  }
+}
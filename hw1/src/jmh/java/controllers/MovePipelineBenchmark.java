@@ -0,0 +1,86 @@
+package controllers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import models.GameBoard;
+import models.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Plays whole games through the server's own move pipeline, in process and
+ * without HTTP: start, join, five moves on the game's shard with their
+ * broadcast and journal writes, then delete. The moves go to a move log in
+ * a temporary directory, so ase.db is left alone.
+ * @author kenyaplenty
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovePipelineBenchmark {
+
+  @Param({"MEMORY", "ASYNC", "SYNC"})
+  String durability;
+
+  Path logDir;
+
+  /**
+   * Starts the server on an empty move log.
+   */
+  @Setup
+  public void start() throws IOException {
+    logDir = Files.createTempDirectory("move-pipeline");
+    System.setProperty("persistence.store", "LOG");
+    System.setProperty("persistence.logDir", logDir.toString());
+    System.setProperty("persistence.durability", durability);
+    PlayGame.main(new String[0]);
+  }
+
+  /**
+   * Stops the server and deletes the move log.
+   */
+  @TearDown
+  public void stop() throws IOException {
+    PlayGame.stop();
+    try (Stream<Path> files = Files.walk(logDir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+    }
+  }
+
+  /**
+   * Plays a game player 1 wins down the first column.
+   * @return the winner
+   */
+  @Benchmark
+  public int playWonGame() {
+    PlayGame.createGame(new Player('X', 1), GameBoard.DEFAULT_SIZE, GameBoard.DEFAULT_SIZE);
+    GameBoard gameBoard = PlayGame.gameOfRoom(UiWebSocket.DEFAULT_ROOM);
+    PlayGame.joinGame(gameBoard);
+    PlayGame.makeMove(gameBoard, 1, 0, 0);
+    PlayGame.makeMove(gameBoard, 2, 1, 1);
+    PlayGame.makeMove(gameBoard, 1, 1, 0);
+    PlayGame.makeMove(gameBoard, 2, 2, 2);
+    PlayGame.makeMove(gameBoard, 1, 2, 0);
+    int winner = gameBoard.getWinner();
+    PlayGame.deleteGame(gameBoard.getGameId());
+    return winner;
+  }
+}
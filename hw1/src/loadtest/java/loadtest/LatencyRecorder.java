@@ -0,0 +1,74 @@
+package loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies of one kind of request and reports their count,
+ * rate and percentiles. Samples are kept whole rather than bucketed, which
+ * is fine for the few million a load test run produces.
+ * @author kenyaplenty
+ *
+ */
+public class LatencyRecorder {
+
+  private final String name;
+
+  private long[] samples = new long[1024];
+
+  private int count;
+
+  private int errors;
+
+  /**
+   * Creates an empty recorder.
+   * @param name is what is being timed, as shown in the report
+   */
+  public LatencyRecorder(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Records one latency.
+   * @param nanos is the latency in nanoseconds
+   */
+  public synchronized void record(long nanos) {
+    if (count == samples.length) {
+      samples = Arrays.copyOf(samples, count * 2);
+    }
+    samples[count++] = nanos;
+  }
+
+  /**
+   * Records a request that failed. It is counted but not timed.
+   */
+  public synchronized void recordError() {
+    errors++;
+  }
+
+  /**
+   * Returns one line with the count, rate and p50/p99/p999 latencies.
+   * @param elapsedNanos is how long the run took
+   * @return the report line
+   */
+  public synchronized String report(long elapsedNanos) {
+    long[] sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+    return String.format("%-12s %9d %10.1f/s %9.3f %9.3f %9.3f %7d", name, count,
+        count / (elapsedNanos / 1e9), percentile(sorted, 0.50), percentile(sorted, 0.99),
+        percentile(sorted, 0.999), errors);
+  }
+
+  /**
+   * Returns a percentile of sorted latencies.
+   * @param sorted is the sorted latencies in nanoseconds
+   * @param fraction is the percentile as a fraction, 0.99 for p99
+   * @return the latency in milliseconds, or 0 if there are none
+   */
+  private static double percentile(long[] sorted, double fraction) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(fraction * sorted.length) - 1;
+    return sorted[Math.max(index, 0)] / 1e6;
+  }
+}
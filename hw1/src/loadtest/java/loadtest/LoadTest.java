@@ -0,0 +1,272 @@
+package loadtest;
+
+import controllers.PlayGame;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plays many games at once against a running PlayGame and reports the
+ * throughput and p50/p99/p999 latency of every endpoint, and of the delivery
+ * of each move to the WebSocket listeners of its game.
+ *
+ * <p>Every simulated game runs on its own thread: it starts a game, opens
+ * its listeners on /gameboard/:gameId in delta mode, joins it, then lets
+ * the two players read the board and move in turn with a think time
+ * between moves, and starts over when the game ends. It is set up with
+ * system properties:
+ * <pre>
+ *  loadtest.url             server to test, default http://localhost:8080
+ *  loadtest.embedded        start PlayGame in this JVM on a temporary move log
+ *  loadtest.games           games played at once (2 players each), default 500
+ *  loadtest.listeners       WebSocket listeners per game, default 1
+ *  loadtest.thinkMillis     mean think time between moves, default 200
+ *  loadtest.durationSeconds how long to run, default 30
+ * </pre>
+ * @author kenyaplenty
+ *
+ */
+public class LoadTest {
+
+  private static final Pattern GAME_ID = Pattern.compile("\"gameId\":(\\d+)");
+
+  private static final Pattern CODE = Pattern.compile("\"code\":(-?\\d+)");
+
+  private static final Pattern EVENT_CELL = Pattern.compile("\"x\":(\\d+),\"y\":(\\d+)");
+
+  private static final int SIZE = 3;
+
+  private final String url;
+
+  private final int listeners;
+
+  private final long thinkMillis;
+
+  private final long deadline;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  private final LatencyRecorder startGame = new LatencyRecorder("startgame");
+  private final LatencyRecorder joinGame = new LatencyRecorder("joingame");
+  private final LatencyRecorder getGameBoard = new LatencyRecorder("getgameboard");
+  private final LatencyRecorder move = new LatencyRecorder("move");
+  private final LatencyRecorder connect = new LatencyRecorder("ws connect");
+  private final LatencyRecorder broadcast = new LatencyRecorder("broadcast");
+
+  /**
+   * Creates a load test.
+   * @param url is the base URL of the server
+   * @param listeners is the number of WebSocket listeners per game
+   * @param thinkMillis is the mean think time between moves
+   * @param deadline is the System.nanoTime() at which games stop being started
+   */
+  public LoadTest(String url, int listeners, long thinkMillis, long deadline) {
+    this.url = url;
+    this.listeners = listeners;
+    this.thinkMillis = thinkMillis;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Runs the load test.
+   * @param args are not used; see the class comment for the system properties
+   */
+  public static void main(String[] args) throws Exception {
+    String url = System.getProperty("loadtest.url", "http://localhost:8080");
+    int games = Integer.getInteger("loadtest.games", 500);
+    int listeners = Integer.getInteger("loadtest.listeners", 1);
+    long thinkMillis = Long.getLong("loadtest.thinkMillis", 200);
+    long durationSeconds = Long.getLong("loadtest.durationSeconds", 30);
+
+    if (Boolean.getBoolean("loadtest.embedded")) {
+      System.setProperty("persistence.store", "LOG");
+      System.setProperty("persistence.logDir",
+          Files.createTempDirectory("loadtest").toString());
+      PlayGame.main(new String[0]);
+    }
+
+    long start = System.nanoTime();
+    LoadTest test = new LoadTest(url, listeners, thinkMillis,
+        start + TimeUnit.SECONDS.toNanos(durationSeconds));
+    System.out.println(String.format("Playing %d games at once with %d listeners each against %s"
+        + " for %d s", games, listeners, url, durationSeconds));
+    ExecutorService players = Executors.newFixedThreadPool(games);
+    for (int i = 0; i < games; i++) {
+      players.execute(test::playGames);
+    }
+    players.shutdown();
+    players.awaitTermination(durationSeconds + 60, TimeUnit.SECONDS);
+    test.report(System.nanoTime() - start);
+
+    if (Boolean.getBoolean("loadtest.embedded")) {
+      PlayGame.stop();
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Plays games one after the other until the deadline.
+   */
+  private void playGames() {
+    try {
+      // spread the first requests over the first think time
+      Thread.sleep(ThreadLocalRandom.current().nextLong(thinkMillis + 1));
+      while (System.nanoTime() < deadline) {
+        playGame();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Plays one game from start to end with random moves.
+   */
+  private void playGame() throws InterruptedException {
+    String board = send(startGame, HttpRequest.newBuilder(URI.create(url + "/startgame"))
+        .header("Content-Type", "application/x-www-form-urlencoded")
+        .POST(HttpRequest.BodyPublishers.ofString("type=X")));
+    Matcher gameIdMatcher = board == null ? null : GAME_ID.matcher(board);
+    if (gameIdMatcher == null || !gameIdMatcher.find()) {
+      return;
+    }
+    long gameId = Long.parseLong(gameIdMatcher.group(1));
+
+    // when each cell was sent as a move, for the listeners to time its delivery
+    AtomicLongArray sentAt = new AtomicLongArray(SIZE * SIZE);
+    List<WebSocket> sockets = new ArrayList<>();
+    for (int i = 0; i < listeners; i++) {
+      long connectStart = System.nanoTime();
+      try {
+        sockets.add(client.newWebSocketBuilder()
+            .buildAsync(URI.create(url.replaceFirst("^http", "ws") + "/gameboard/" + gameId
+                + "?mode=delta"), new Listener(sentAt)).join());
+        connect.record(System.nanoTime() - connectStart);
+      } catch (RuntimeException e) {
+        connect.recordError();
+      }
+    }
+
+    send(joinGame, HttpRequest.newBuilder(URI.create(url + "/joingame/" + gameId)).GET());
+
+    int[] cells = new int[SIZE * SIZE];
+    for (int cell = 0; cell < cells.length; cell++) {
+      int other = ThreadLocalRandom.current().nextInt(cell + 1);
+      cells[cell] = cells[other];
+      cells[other] = cell;
+    }
+    for (int i = 0; i < cells.length; i++) {
+      think();
+      send(getGameBoard, HttpRequest.newBuilder(URI.create(url + "/getgameboard/" + gameId))
+          .GET());
+      int playerId = i % 2 + 1;
+      sentAt.set(cells[i], System.nanoTime());
+      String message = send(move, HttpRequest.newBuilder(
+          URI.create(url + "/move/" + gameId + "/" + playerId))
+          .header("Content-Type", "application/x-www-form-urlencoded")
+          .POST(HttpRequest.BodyPublishers.ofString(
+              "x=" + cells[i] / SIZE + "&y=" + cells[i] % SIZE)));
+      Matcher code = message == null ? null : CODE.matcher(message);
+      if (code == null || !code.find() || !"100".equals(code.group(1))) {
+        break;
+      }
+    }
+
+    for (WebSocket socket : sockets) {
+      socket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+    }
+  }
+
+  /**
+   * Waits a random think time, between half and one and a half times the mean.
+   */
+  private void think() throws InterruptedException {
+    if (thinkMillis > 0) {
+      Thread.sleep(thinkMillis / 2 + ThreadLocalRandom.current().nextLong(thinkMillis + 1));
+    }
+  }
+
+  /**
+   * Sends a request and times it.
+   * @param recorder is where the latency is recorded
+   * @param request is the request to send
+   * @return the response body, or null if the request failed
+   */
+  private String send(LatencyRecorder recorder, HttpRequest.Builder request)
+      throws InterruptedException {
+    long requestStart = System.nanoTime();
+    try {
+      HttpResponse<String> response = client.send(request.build(),
+          HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() >= 400) {
+        recorder.recordError();
+        return null;
+      }
+      recorder.record(System.nanoTime() - requestStart);
+      return response.body();
+    } catch (IOException e) {
+      recorder.recordError();
+      return null;
+    }
+  }
+
+  /**
+   * Prints the report of every recorder.
+   * @param elapsedNanos is how long the run took
+   */
+  private void report(long elapsedNanos) {
+    System.out.println(String.format("%-12s %9s %12s %9s %9s %9s %7s", "", "count", "rate",
+        "p50 ms", "p99 ms", "p999 ms", "errors"));
+    for (LatencyRecorder recorder : new LatencyRecorder[] {
+        startGame, joinGame, getGameBoard, move, connect, broadcast}) {
+      System.out.println(recorder.report(elapsedNanos));
+    }
+  }
+
+  /**
+   * A delta mode listener that times how long each move took from being
+   * sent to arriving as a move event.
+   */
+  private class Listener implements WebSocket.Listener {
+
+    private final AtomicLongArray sentAt;
+
+    private final StringBuilder text = new StringBuilder();
+
+    Listener(AtomicLongArray sentAt) {
+      this.sentAt = sentAt;
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+      text.append(data);
+      if (last) {
+        Matcher cell = EVENT_CELL.matcher(text);
+        if (text.indexOf("\"pv\"") >= 0 && cell.find()) {
+          long sent = sentAt.get(Integer.parseInt(cell.group(1)) * SIZE
+              + Integer.parseInt(cell.group(2)));
+          if (sent != 0) {
+            broadcast.record(System.nanoTime() - sent);
+          }
+        }
+        text.setLength(0);
+      }
+      webSocket.request(1);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package controllers;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import models.GameBoard;
+
+/**
+ * Keeps track of every live game on the server, keyed by its game ID.
+ * Lookups go straight to a ConcurrentHashMap so reading a game never
+ * takes a lock, and moves in unrelated games never contend with each other.
+ * The registry also remembers the "default" game, which is the game that
+ * the original routes without a game ID (/joingame, /move/:playerId, ...) act on.
+ * Stored games are only restored when they are first looked up, so startup
+ * does not grow with the number of stored games.
+ * @author kenyaplenty
+ *
+ */
+public class GameRegistry {
+
+  private final ConcurrentMap<Long, GameBoard> games = new ConcurrentHashMap<>();
+
+  private final AtomicLong nextGameId = new AtomicLong(1);
+
+  private volatile long defaultGameId;
+
+  /** IDs of stored games that have not been restored yet. */
+  private final Set<Long> unrestored = ConcurrentHashMap.newKeySet();
+
+  /** Restores still running, so a second lookup waits for the first one. */
+  private final ConcurrentMap<Long, CompletableFuture<GameBoard>> restoring =
+      new ConcurrentHashMap<>();
+
+  private volatile LongFunction<GameBoard> restorer = gameId -> null;
+
+  /**
+   * Registers stored games without restoring them. Each one is restored by
+   * the restorer the first time it is looked up.
+   * @param gameIds is the IDs of the stored games
+   * @param restorer is the function that rebuilds a stored game, or returns null
+   */
+  public void restoreLazily(Collection<Long> gameIds, LongFunction<GameBoard> restorer) {
+    this.restorer = restorer;
+    for (long gameId : gameIds) {
+      unrestored.add(gameId);
+      nextGameId.accumulateAndGet(gameId + 1, Math::max);
+    }
+  }
+
+  /**
+   * Creates a new game, gives it a fresh ID and registers it.
+   * @param size is the number of rows and columns on the board
+   * @param winLength is the number of marks in a row needed to win
+   * @return the newly registered GameBoard
+   */
+  public GameBoard createGame(int size, int winLength) {
+    GameBoard gameBoard = new GameBoard(size, winLength);
+    gameBoard.setGameId(nextGameId.getAndIncrement());
+    games.put(gameBoard.getGameId(), gameBoard);
+    return gameBoard;
+  }
+
+  /**
+   * Registers a game that already has an ID, for example one restored from the database.
+   * @param gameBoard is the GameBoard to register
+   */
+  public void register(GameBoard gameBoard) {
+    games.put(gameBoard.getGameId(), gameBoard);
+    nextGameId.accumulateAndGet(gameBoard.getGameId() + 1, Math::max);
+  }
+
+  /**
+   * Returns the game with the given ID, restoring it first if it is a
+   * stored game that has not been looked up yet.
+   * @param gameId is the ID of the game
+   * @return the GameBoard, or null if there is no such game
+   */
+  public GameBoard get(long gameId) {
+    GameBoard gameBoard = games.get(gameId);
+    if (gameBoard != null || !unrestored.contains(gameId)) {
+      return gameBoard;
+    }
+    return restore(gameId);
+  }
+
+  /**
+   * Restores a stored game. Only the first caller runs the restorer; callers
+   * that arrive while it runs wait for its result. The game is put in the
+   * registry before its ID leaves unrestored, and remove() takes the ID out
+   * of unrestored before the game, so whichever runs second sees the other
+   * and a game removed during its restore is never put back.
+   * @param gameId is the ID of the game
+   * @return the restored GameBoard, or null if it could not be restored
+   */
+  private GameBoard restore(long gameId) {
+    CompletableFuture<GameBoard> restored = new CompletableFuture<>();
+    CompletableFuture<GameBoard> running = restoring.putIfAbsent(gameId, restored);
+    if (running != null) {
+      return running.join();
+    }
+    try {
+      // another caller may have finished the restore since the lookup
+      GameBoard gameBoard = games.get(gameId);
+      if (gameBoard == null && unrestored.contains(gameId)) {
+        gameBoard = restorer.apply(gameId);
+        if (gameBoard != null) {
+          games.put(gameId, gameBoard);
+        }
+        // a remove() during the restore took the ID out first, so the game stays removed
+        if (!unrestored.remove(gameId) && gameBoard != null) {
+          games.remove(gameId, gameBoard);
+          gameBoard = null;
+        }
+      }
+      restored.complete(gameBoard);
+      return gameBoard;
+    } catch (RuntimeException e) {
+      restored.completeExceptionally(e);
+      throw e;
+    } finally {
+      restoring.remove(gameId, restored);
+    }
+  }
+
+  /**
+   * Removes a game from the registry.
+   * @param gameId is the ID of the game to remove
+   * @return the removed GameBoard, or null if there was no such game
+   *     or it had not been restored yet
+   */
+  public GameBoard remove(long gameId) {
+    unrestored.remove(gameId);
+    return games.remove(gameId);
+  }
+
+  /**
+   * Returns the game that the routes without a game ID act on.
+   * @return the default GameBoard, or null if there is none
+   */
+  public GameBoard getDefaultGame() {
+    return get(defaultGameId);
+  }
+
+  /**
+   * Returns the ID of the default game.
+   * @return the default game ID
+   */
+  public long getDefaultGameId() {
+    return defaultGameId;
+  }
+
+  /**
+   * Makes the given game the one that the routes without a game ID act on.
+   * @param gameId is the ID of the new default game
+   */
+  public void setDefaultGameId(long gameId) {
+    this.defaultGameId = gameId;
+  }
+
+  /**
+   * Returns a live view of all registered games that have been restored.
+   * @return the registered games
+   */
+  public Collection<GameBoard> getGames() {
+    return games.values();
+  }
+
+  /**
+   * Returns the number of registered games that have been restored.
+   * @return the number of games
+   */
+  public int size() {
+    return games.size();
+  }
+
+  /**
+   * Returns the number of stored games that have not been restored yet.
+   * @return the number of unrestored games
+   */
+  public int getUnrestoredCount() {
+    return unrestored.size();
+  }
+}
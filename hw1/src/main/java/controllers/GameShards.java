@@ -0,0 +1,96 @@
+package controllers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A fixed number of single-threaded executors that own the games between
+ * them: a game belongs to shard gameId mod the number of shards, and its
+ * state is only read or changed by commands run on that shard's thread.
+ * Commands for one game run one at a time in the order they were queued,
+ * so two moves can never both pass isValidMove, while games on different
+ * shards run in parallel without sharing a lock.
+ * @author kenyaplenty
+ *
+ */
+public class GameShards {
+
+  /** How long shutdown() waits for each shard to run what it has queued. */
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+  private final ExecutorService[] shards;
+
+  /**
+   * Starts the shard threads.
+   * @param count is the number of shards
+   */
+  public GameShards(int count) {
+    if (count < 1) {
+      throw new IllegalArgumentException("There must be at least one shard");
+    }
+    this.shards = new ExecutorService[count];
+    for (int i = 0; i < count; i++) {
+      String name = "game-shard-" + i;
+      shards[i] = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Queues a command on the shard that owns a game.
+   * @param gameId is the ID of the game the command reads or changes
+   * @param command is the command to run
+   * @return a future of the result of the command
+   */
+  public <T> CompletableFuture<T> submit(long gameId, Supplier<T> command) {
+    return CompletableFuture.supplyAsync(command, shards[Math.floorMod(gameId, shards.length)]);
+  }
+
+  /**
+   * Runs a command on the shard that owns a game and waits for its result.
+   * @param gameId is the ID of the game the command reads or changes
+   * @param command is the command to run
+   * @return the result of the command
+   */
+  public <T> T execute(long gameId, Supplier<T> command) {
+    try {
+      return submit(gameId, command).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the number of shards.
+   * @return the shard count
+   */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * Stops the shard threads, waiting for the commands already queued to run.
+   */
+  public void shutdown() {
+    for (ExecutorService shard : shards) {
+      shard.shutdown();
+    }
+    try {
+      for (ExecutorService shard : shards) {
+        shard.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -2,37 +2,90 @@ package controllers;
 
 import com.google.gson.Gson;
 import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+import io.javalin.http.NotFoundResponse;
 import java.io.IOException;
-import java.sql.Connection;
-import java.util.Queue;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import models.AlphaBetaBot;
+import models.BoardCheckpoint;
+import models.BoardSnapshot;
 import models.GameBoard;
+import models.JsonEncoder;
 import models.Message;
 import models.Move;
+import models.MoveEvent;
 import models.Player;
+import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.websocket.api.Session;
-import utils.GameDatabase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConnectionPool;
+import utils.GameStore;
+import utils.Metrics;
+import utils.MoveJournal;
+import utils.MoveLog;
+import utils.SqliteGameStore;
 
 public class PlayGame {
 
+  private static final Logger LOG = LoggerFactory.getLogger(PlayGame.class);
+
   private static final int PORT_NUMBER = 8080;
 
   private static Javalin app;
   
   private static Gson gson = new Gson(); 
   
-  private static GameBoard gameBoard; 
+  private static GameRegistry games; 
   
-  private static Player player1;
+  private static GameStore store; 
   
-  private static Player player2; 
-
-  /** Main method of the application.
+  private static MoveJournal journal; 
+  
+  /** Number of moves between two checkpoints of a game, or 0 for none. */
+  private static int checkpointInterval; 
+  
+  private static GameShards shards; 
+  
+  private static final Metrics.Histogram FANOUT = Metrics.histogram(
+      "websocket_fanout_duration_seconds", "Time to queue a board update for the sockets of a game");
+  
+  /** Request latency histograms by method and then by route, so a request
+   * finds its histogram without building the label string. */
+  private static final Map<String, Map<String, Metrics.Histogram>> REQUEST_TIMERS = 
+      new ConcurrentHashMap<>(); 
+  
+  private static final Metrics.Counter GAMES_STARTED = Metrics.counter(
+      "games_started_total", "Games that player 2 joined");
+  
+  private static final Metrics.Counter GAMES_FINISHED = Metrics.counter(
+      "games_finished_total", "Games that were won or drawn");
+  
+  /** Main method of the application. With server.threads set to VIRTUAL the
+   * HTTP and WebSocket handlers run on virtual threads (Java 21 or newer)
+   * instead of Jetty's bounded thread pool.
    * @param args Command line arguments
    */
   public static void main(final String[] args) {
 
     app = Javalin.create(config -> {
       config.addStaticFiles("/public");
+      if ("VIRTUAL".equals(System.getProperty("server.threads", "PLATFORM"))) {
+        config.server(() -> new Server(new VirtualThreadPool()));
+      }
+      // static files match no route and share one label
+      config.requestLogger((ctx, executionTimeMs) -> requestTimer(ctx.method(), 
+          ctx.matchedPath().isEmpty() ? "static" : ctx.matchedPath())
+          .observeNanos((long) (executionTimeMs * 1e6)));
     }).start(PORT_NUMBER);
 
     // Test Echo Server
@@ -40,99 +93,471 @@ public class PlayGame {
       ctx.result(ctx.body());
     });
     
-    Connection conn = GameDatabase.createConnection(); 
-    gameBoard = GameDatabase.restoreGameBoard(conn, gameBoard);
-    System.out.println(gameBoard); 
+    store = openStore(); 
+    games = new GameRegistry(); 
+    recoverGames(); 
+    journal = new MoveJournal(store, MoveJournal.Durability.valueOf(
+        System.getProperty("persistence.durability", "SYNC")));
+    checkpointInterval = Integer.getInteger("persistence.checkpointInterval", 8); 
+    shards = new GameShards(Integer.getInteger("game.shards", 
+        Runtime.getRuntime().availableProcessors())); 
+    registerGauges(); 
+    
+    // Counters and latency histograms in the Prometheus text format
+    app.get("/metrics", ctx -> {
+      ctx.contentType("text/plain; version=0.0.4");
+      ctx.result(Metrics.scrape());
+    });
         
     // Redirects the user to a new game
     app.get("/newgame", ctx -> {
-      GameDatabase.resetTables(conn);
-      gameBoard = null; 
+      deleteGame(games.getDefaultGameId()); 
       ctx.redirect("/tictactoe.html"); 
     }); 
     
-    // Adds player 1 to the game and sends a link for player to join
+    // Adds player 1 to a new game and sends a link for player to join.
+    // The optional size and win parameters pick a size x size board won with win in a row.
     app.post("/startgame", ctx -> {
-      char player1Symbol = ctx.body().charAt(ctx.body().length() - 1); 
-      player1 = new Player(player1Symbol, 1); 
-      gameBoard = new GameBoard(); 
-      gameBoard.setP1(player1);
-      GameDatabase.addPlayer(conn, player1); 
-      ctx.result(gson.toJson(gameBoard)); 
+      // the validator answers 400 when type is missing or empty
+      char player1Symbol = ctx.formParam("type", String.class).get().charAt(0); 
+      int size = ctx.formParam("size", Integer.class, String.valueOf(GameBoard.DEFAULT_SIZE))
+          .check(s -> s >= GameBoard.DEFAULT_SIZE && s <= GameBoard.MAX_SIZE, 
+              "size must be between " + GameBoard.DEFAULT_SIZE + " and " + GameBoard.MAX_SIZE)
+          .get(); 
+      int winLength = ctx.formParam("win", Integer.class, String.valueOf(Math.min(size, 5)))
+          .check(w -> w >= GameBoard.DEFAULT_SIZE && w <= size, 
+              "win must be between " + GameBoard.DEFAULT_SIZE + " and the board size")
+          .get(); 
+      ctx.result(createGame(new Player(player1Symbol, 1), size, winLength).getUtf8()); 
     });
     
-    
-    // Adds player 2 to the game and starts the game
+    // Adds player 2 to the default game and starts the game
     app.get("/joingame", ctx -> {
-      char player2Symbol = gameBoard.getP1().getType() == 'X' ? 'O' : 'X';
-      player2 = new Player(player2Symbol, 2); 
-      gameBoard.setP2(player2);
-      gameBoard.setGameStarted(true); 
-      GameDatabase.addPlayer(conn, player2);
-      sendGameBoardToAllPlayers(gson.toJson(gameBoard));
+      joinGame(defaultGame());
       ctx.redirect("/tictactoe.html?p=2");
     });
     
-    //Adds moves to the board and ends the game when necessary
+    // Adds player 2 to the given game and starts the game
+    app.get("/joingame/:gameId", ctx -> {
+      GameBoard gameBoard = joinGame(findGame(ctx));
+      ctx.redirect("/tictactoe.html?p=2&g=" + gameBoard.getGameId());
+    });
+    
+    // Makes the computer player 2 of the default game and starts the game
+    app.get("/joinbot", ctx -> {
+      ctx.result(joinBot(defaultGame()).getUtf8());
+    });
+    
+    // Makes the computer player 2 of the given game and starts the game
+    app.get("/joinbot/:gameId", ctx -> {
+      ctx.result(joinBot(findGame(ctx)).getUtf8());
+    });
+    
+    //Adds moves to the default board and ends the game when necessary
     app.post("/move/:playerId", ctx -> {
-      int playersTurn = Integer.parseInt(ctx.pathParam("playerId")); 
-      int moveX = Character.getNumericValue(ctx.body().charAt(2)); 
-      int moveY = Character.getNumericValue(ctx.body().charAt(ctx.body().length() - 1));
-      
-      Move currentMove; 
-      
-      if (playersTurn == 1) {
-        currentMove = new Move(gameBoard.getP1(), moveX, moveY);
-      } else {
-        currentMove = new Move(gameBoard.getP2(), moveX, moveY);
-      }
-      
-      Message moveMessage; 
-      if (gameBoard.isValidMove(currentMove)) { 
-        gameBoard.addMoveToBoardAndSwitchesTurns(currentMove); 
-        
-        if (gameBoard.playerWonGame(gameBoard.getP1())) {
-          gameBoard.endsGameAndSetsWinner(gameBoard.getP1());
-        }  
-        if (gameBoard.playerWonGame(gameBoard.getP2())) {
-          gameBoard.endsGameAndSetsWinner(gameBoard.getP2());
-        }
-        
-        moveMessage = gameBoard.generateValidMoveMessage();
-       
-        
-      } else if (gameBoard.isGameDraw()) {
-        gameBoard.setGameDraw();
-        moveMessage = gameBoard.generateDrawMessage();
-        
-      } else {
-        moveMessage = gameBoard.generateInvalidMoveMessage();
-      }
-      sendGameBoardToAllPlayers(gson.toJson(gameBoard));
-      GameDatabase.addMoveData(conn, currentMove);
-      
-      ctx.result(gson.toJson(moveMessage));
+      ctx.result(JsonEncoder.toUtf8(makeMove(defaultGame(), ctx)));
+    }); 
+    
+    //Adds moves to the given board and ends the game when necessary
+    app.post("/move/:gameId/:playerId", ctx -> {
+      ctx.result(JsonEncoder.toUtf8(makeMove(findGame(ctx), ctx)));
     }); 
     
     app.get("/getgameboard", ctx -> {
-      ctx.result(gson.toJson(gameBoard));
+      ctx.result(snapshotOf(defaultGame()).getUtf8());
+    });
+    
+    app.get("/getgameboard/:gameId", ctx -> {
+      ctx.result(snapshotOf(findGame(ctx)).getUtf8());
     });
 
     // Web sockets - DO NOT DELETE or CHANGE
     app.ws("/gameboard", new UiWebSocket());
+    
+    // Web sockets that only receive the updates of one game
+    app.ws("/gameboard/:gameId", new UiWebSocket());
+  }
+  
+  /** Opens the GameStore picked by the persistence.store property: SQLITE 
+   * for the ase.db database, or LOG for the move log in persistence.logDir.
+   * @return the opened GameStore
+   */
+  private static GameStore openStore() {
+    if ("LOG".equals(System.getProperty("persistence.store", "SQLITE"))) {
+      try {
+        return new MoveLog(Paths.get(System.getProperty("persistence.logDir", "moves")),
+            MoveLog.DEFAULT_SEGMENT_SIZE);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return new SqliteGameStore(new ConnectionPool(Integer.getInteger("persistence.poolSize", 4)));
+  }
+  
+  /** Registers the gauges read from the server state when /metrics is shown.
+   */
+  private static void registerGauges() {
+    GameRegistry registry = games; 
+    MoveJournal moveJournal = journal; 
+    SessionBroadcaster broadcaster = UiWebSocket.getBroadcaster(); 
+    Metrics.gauge("games_loaded", "Games in memory", registry::size); 
+    Metrics.gauge("games_unrestored", "Stored games not restored yet", 
+        registry::getUnrestoredCount); 
+    Metrics.gauge("games_active", "Games in memory that are being played", 
+        () -> registry.getGames().stream().filter(GameBoard::getGameStarted).count()); 
+    Metrics.gauge("websocket_sessions", "Open WebSocket sessions", 
+        () -> UiWebSocket.getSessions().size()); 
+    Metrics.gauge("websocket_delta_sessions", "Open WebSocket sessions in delta mode", 
+        UiWebSocket::getDeltaSessionCount); 
+    Metrics.counter("websocket_messages_total", "WebSocket messages by outcome", 
+        broadcaster::getSentCount, "outcome", "sent"); 
+    Metrics.counter("websocket_messages_total", "WebSocket messages by outcome", 
+        broadcaster::getDroppedCount, "outcome", "dropped"); 
+    Metrics.counter("websocket_messages_total", "WebSocket messages by outcome", 
+        broadcaster::getFailedCount, "outcome", "failed"); 
+    Metrics.counter("websocket_slow_disconnects_total", 
+        "WebSocket sessions closed for being too slow", broadcaster::getDisconnectedCount); 
+    Metrics.counter("move_journal_batches_total", "Transactions committed by the move journal", 
+        moveJournal::getBatchCount); 
+    Metrics.counter("move_journal_writes_total", "Writes committed by the move journal", 
+        moveJournal::getWriteCount); 
+    Metrics.doubleGauge("move_journal_batch_size_average", "Average writes per transaction", 
+        moveJournal::getAverageBatchSize); 
+    Metrics.gauge("move_journal_batch_size_max", "Most writes committed in one transaction", 
+        moveJournal::getMaxBatchSize); 
+    Metrics.doubleGauge("move_journal_commit_seconds_max", 
+        "Longest time spent applying and committing one batch", 
+        () -> moveJournal.getMaxCommitNanos() / 1e9); 
+  }
+  
+  /** Returns the latency histogram of the requests to a route.
+   * @param method is the HTTP method of the request
+   * @param route is the matched route, or "static" for a static file
+   * @return the Histogram
+   */
+  private static Metrics.Histogram requestTimer(String method, String route) {
+    return REQUEST_TIMERS.computeIfAbsent(method, m -> new ConcurrentHashMap<>())
+        .computeIfAbsent(route, r -> Metrics.histogram("http_request_duration_seconds", 
+            "Time to handle an HTTP request, by route", "method", method, "route", route)); 
+  }
+  
+  /** Brings back the stored games. By default each game is restored when it 
+   * is first used. With persistence.recovery set to BULK every game is 
+   * restored before the server takes requests, in parallel on the common 
+   * fork-join pool. Either way the last game started before the crash is the
+   * default game again.
+   */
+  private static void recoverGames() {
+    List<Long> storedGameIds; 
+    if ("BULK".equals(System.getProperty("persistence.recovery", "LAZY"))) {
+      long start = System.nanoTime(); 
+      List<GameBoard> restored = store.restoreAllGameBoards(ForkJoinPool.commonPool()); 
+      storedGameIds = new ArrayList<>(restored.size()); 
+      for (GameBoard gameBoard : restored) {
+        games.register(gameBoard); 
+        storedGameIds.add(gameBoard.getGameId()); 
+      }
+      double seconds = (System.nanoTime() - start) / 1e9; 
+      LOG.info("Recovered {} games in {} s ({} games/sec)", restored.size(), 
+          Math.round(seconds * 1000) / 1000.0, 
+          Math.round(restored.size() / Math.max(seconds, 1e-9))); 
+    } else {
+      storedGameIds = store.retrieveGameIds(); 
+      games.restoreLazily(storedGameIds, store::restoreGameBoard); 
+      LOG.info("{} stored games will be restored on first use", storedGameIds.size()); 
+    }
+    if (!storedGameIds.isEmpty()) {
+      games.setDefaultGameId(storedGameIds.get(storedGameIds.size() - 1)); 
+    }
+  }
+  
+  /** Returns the game the routes without a game ID act on.
+   * @return the default GameBoard
+   * @throws NotFoundResponse if no game has been started yet
+   */
+  private static GameBoard defaultGame() {
+    GameBoard gameBoard = games.getDefaultGame();
+    if (gameBoard == null) {
+      throw new NotFoundResponse("No game has been started");
+    }
+    return gameBoard;
+  }
+  
+  /** Encodes a Message as JSON.
+   * @param message is the Message to encode
+   * @return the JSON string
+   */
+  static String toJson(Message message) {
+    return JsonEncoder.toJson(message);
+  }
+  
+  /** Returns the game a WebSocket room follows.
+   * @param roomId is a game ID, or UiWebSocket.DEFAULT_ROOM for the default game
+   * @return the GameBoard, or null if there is no such game
+   */
+  static GameBoard gameOfRoom(long roomId) {
+    if (roomId == UiWebSocket.DEFAULT_ROOM) {
+      return games.getDefaultGame();
+    }
+    return games.get(roomId);
+  }
+  
+  /** Returns the game named by the gameId path parameter.
+   * @param ctx is the request context
+   * @return the matching GameBoard
+   * @throws NotFoundResponse if there is no game with that ID
+   */
+  private static GameBoard findGame(Context ctx) {
+    long gameId = ctx.pathParam("gameId", Long.class).get();
+    GameBoard gameBoard = games.get(gameId);
+    if (gameBoard == null) {
+      throw new NotFoundResponse("Game " + gameId + " does not exist");
+    }
+    return gameBoard;
+  }
+  
+  /** Returns the board of a game as its shard last published it, after the
+   * last move, join or start. The read does not queue behind the moves on
+   * the shard; only a game that has not been encoded since it was restored
+   * goes through the shard once.
+   * @param gameBoard is the game to read
+   * @return the BoardSnapshot of the game
+   */
+  private static BoardSnapshot snapshotOf(GameBoard gameBoard) {
+    BoardSnapshot published = gameBoard.getPublishedSnapshot(); 
+    if (published == null) {
+      published = shards.execute(gameBoard.getGameId(), gameBoard::getSnapshot); 
+    }
+    return published; 
+  }
+  
+  /** Runs a command on the shard that owns a game and waits for it to finish.
+   * @param gameBoard is the game the command reads or changes
+   * @param command is the command to run
+   */
+  static void runOnShard(GameBoard gameBoard, Runnable command) {
+    shards.execute(gameBoard.getGameId(), () -> {
+      command.run();
+      return null;
+    });
+  }
+  
+  /** Creates a game with player 1 in it and makes it the default game.
+   * @param player1 is the Player who started the game
+   * @param size is the number of rows and columns on the board
+   * @param winLength is the number of marks in a row needed to win
+   * @return the BoardSnapshot of the new game, once it has been stored
+   */
+  static BoardSnapshot createGame(Player player1, int size, int winLength) {
+    GameBoard gameBoard = games.createGame(size, winLength); 
+    CompletableFuture<BoardSnapshot> started = shards.execute(gameBoard.getGameId(), () -> {
+      gameBoard.setP1(player1);
+      BoardSnapshot snapshot = gameBoard.getSnapshot(); 
+      journal.addGame(gameBoard); 
+      return journal.addPlayer(gameBoard.getGameId(), player1).thenApply(stored -> snapshot); 
+    });
+    games.setDefaultGameId(gameBoard.getGameId());
+    return started.join(); 
+  }
+  
+  /** Deletes a game from the server and from storage. The delete runs on the
+   * game's shard, so moves queued before it are stored and then deleted with
+   * the game, and moves queued after it find the game gone.
+   * @param gameId is the ID of the game to delete
+   */
+  static void deleteGame(long gameId) {
+    shards.execute(gameId, () -> {
+      CompletableFuture<Boolean> deleted = journal.deleteGame(gameId); 
+      games.remove(gameId); 
+      return deleted; 
+    }).join();
+  }
+  
+  /** Adds player 2 to a game and starts it.
+   * @param gameBoard is the game player 2 is joining
+   * @return the joined GameBoard
+   */
+  static GameBoard joinGame(GameBoard gameBoard) {
+    return joinGame(gameBoard, false); 
+  }
+  
+  /** Adds player 2 to a game and starts it. Whether the computer plays
+   * player 2 is stored before player 2, so a restored game never has a
+   * player 2 the computer forgot it was playing.
+   * @param gameBoard is the game player 2 is joining
+   * @param bot is whether the computer is player 2
+   * @return the joined GameBoard
+   */
+  private static GameBoard joinGame(GameBoard gameBoard, boolean bot) {
+    shards.execute(gameBoard.getGameId(), () -> {
+      char player2Symbol = gameBoard.getP1().getType() == 'X' ? 'O' : 'X';
+      Player player2 = new Player(player2Symbol, 2); 
+      gameBoard.setBotOpponent(bot); 
+      if (bot) {
+        journal.addBotOpponent(gameBoard.getGameId()); 
+      }
+      gameBoard.setP2(player2);
+      gameBoard.setGameStarted(true); 
+      GAMES_STARTED.increment(); 
+      sendGameBoardToPlayers(gameBoard, -1, null);
+      return journal.addPlayer(gameBoard.getGameId(), player2);
+    }).join();
+    return gameBoard;
+  }
+  
+  /** Makes the computer player 2 of a game and starts it. From then on the
+   * computer answers every move of player 1 with a move of its own.
+   * @param gameBoard is the game the computer is joining
+   * @return the BoardSnapshot of the started game
+   * @throws BadRequestResponse if the board is not the standard 3x3 board
+   */
+  private static BoardSnapshot joinBot(GameBoard gameBoard) {
+    if (gameBoard.getSize() != GameBoard.DEFAULT_SIZE 
+        || gameBoard.getWinLength() != GameBoard.DEFAULT_SIZE) {
+      throw new BadRequestResponse("The computer only plays on the standard 3x3 board");
+    }
+    joinGame(gameBoard, true); 
+    return snapshotOf(gameBoard); 
+  }
+  
+  /** Applies the move in the request body to a game.
+   * @param gameBoard is the game the move is made in
+   * @param ctx is the request context holding the playerId and the move
+   * @return the Message describing the result of the move
+   */
+  private static Message makeMove(GameBoard gameBoard, Context ctx) {
+    int playersTurn = Integer.parseInt(ctx.pathParam("playerId")); 
+    int moveX = ctx.formParam("x", Integer.class).get(); 
+    int moveY = ctx.formParam("y", Integer.class).get();
+    return makeMove(gameBoard, playersTurn, moveX, moveY);
+  }
+  
+  /** Applies a move to a game on the game's shard and waits until it has been stored.
+   * @param gameBoard is the game the move is made in
+   * @param playersTurn is the id of the player making the move
+   * @param moveX is the x coordinate of the move
+   * @param moveY is the y coordinate of the move
+   * @return the Message describing the result of the move
+   * @throws NotFoundResponse if the game was deleted before the move could be made
+   */
+  static Message makeMove(GameBoard gameBoard, int playersTurn, int moveX, int moveY) {
+    long gameId = gameBoard.getGameId(); 
+    return shards.execute(gameId, () -> {
+      // the game may have been deleted while the move was waiting for the shard
+      if (games.get(gameId) != gameBoard) {
+        throw new NotFoundResponse("Game " + gameId + " does not exist");
+      }
+      return applyMove(gameBoard, playersTurn, moveX, moveY);
+    }).join();
+  }
+  
+  /** Applies a move to a game, sends the new board to its sockets and queues the move
+   * to be stored. Every checkpointInterval moves the state of the board is stored as well.
+   * This runs on the game's shard, which does not wait for the move to be stored.
+   * In a game against the computer its answer to a valid move is applied right after.
+   * @param gameBoard is the game the move is made in
+   * @param playersTurn is the id of the player making the move
+   * @param moveX is the x coordinate of the move
+   * @param moveY is the y coordinate of the move
+   * @return a future of the Message describing the result of the move, completed once
+   *     the move has been stored
+   */
+  private static CompletableFuture<Message> applyMove(GameBoard gameBoard, int playersTurn, 
+      int moveX, int moveY) {
+    Move currentMove; 
+    
+    if (playersTurn == 1) {
+      currentMove = new Move(gameBoard.getP1(), moveX, moveY);
+    } else {
+      currentMove = new Move(gameBoard.getP2(), moveX, moveY);
+    }
+    
+    long previousVersion = gameBoard.getVersion();
+    boolean wasStarted = gameBoard.getGameStarted();
+    MoveEvent moveEvent = null;
+    Message moveMessage; 
+    if (gameBoard.isValidMove(currentMove)) { 
+      gameBoard.addMoveToBoardAndSwitchesTurns(currentMove); 
+      
+      if (gameBoard.playerWonGame(gameBoard.getP1())) {
+        gameBoard.endsGameAndSetsWinner(gameBoard.getP1());
+      }  
+      if (gameBoard.playerWonGame(gameBoard.getP2())) {
+        gameBoard.endsGameAndSetsWinner(gameBoard.getP2());
+      }
+      
+      moveMessage = gameBoard.generateValidMoveMessage();
+      moveEvent = new MoveEvent(previousVersion, currentMove, gameBoard);
+     
+      
+    } else if (gameBoard.isGameDraw()) {
+      gameBoard.setGameDraw();
+      moveMessage = gameBoard.generateDrawMessage();
+      
+    } else {
+      moveMessage = gameBoard.generateInvalidMoveMessage();
+    }
+    if (wasStarted && !gameBoard.getGameStarted()) {
+      GAMES_FINISHED.increment();
+    }
+    sendGameBoardToPlayers(gameBoard, previousVersion, moveEvent);
+    long seq = gameBoard.nextMoveSeq();
+    CompletableFuture<Boolean> stored = journal.addMove(gameBoard.getGameId(), seq, currentMove);
+    if (checkpointInterval > 0 && seq % checkpointInterval == 0) {
+      journal.addCheckpoint(gameBoard.getGameId(), new BoardCheckpoint(seq, gameBoard));
+    }
+    
+    if (moveEvent != null && gameBoard.getGameStarted() && gameBoard.getTurn() == 2 
+        && gameBoard.isBotOpponent()) {
+      Move botMove = AlphaBetaBot.chooseMove(gameBoard, gameBoard.getP2()); 
+      if (botMove != null) {
+        applyMove(gameBoard, 2, botMove.getMoveX(), botMove.getMoveY()); 
+      }
+    }
+    
+    Message result = moveMessage;
+    return stored.thenApply(done -> result);
+  }
+  
+  /** Send the game board to the players and watchers of its game. Sockets
+   * in the default room also get it when the game is the default game.
+   * Sockets in delta mode get the move event instead, get the whole board
+   * if the board changed without a move, and get nothing if it did not change.
+   * @param gameBoard the game that changed
+   * @param previousVersion the version of the board before the change, or -1
+   * @param moveEvent the move that changed the board, or null
+   */
+  private static void sendGameBoardToPlayers(final GameBoard gameBoard, 
+      final long previousVersion, final MoveEvent moveEvent) {
+    long start = System.nanoTime();
+    String gameBoardJson = gameBoard.getSnapshot().getJson();
+    String deltaJson = null;
+    if (moveEvent != null) {
+      deltaJson = gson.toJson(moveEvent);
+    } else if (gameBoard.getVersion() != previousVersion) {
+      deltaJson = gameBoardJson;
+    }
+    sendToSessions(UiWebSocket.getRoom(gameBoard.getGameId()), gameBoardJson, deltaJson);
+    if (gameBoard.getGameId() == games.getDefaultGameId()) {
+      sendToSessions(UiWebSocket.getRoom(UiWebSocket.DEFAULT_ROOM), gameBoardJson, deltaJson);
+    }
+    FANOUT.observeSince(start);
   }
 
-  /** Send message to all players.
+  /** Queue a message for a set of sessions. Sending happens in the background,
+   * so a slow or stalled client does not hold up the caller.
+   * @param sessions the sessions to send to
    * @param gameBoardJson Gameboard JSON
-   * @throws IOException Websocket message send IO Exception
+   * @param deltaJson what to send to sessions in delta mode, or null to skip them
    */
-  private static void sendGameBoardToAllPlayers(final String gameBoardJson) {
-    Queue<Session> sessions = UiWebSocket.getSessions();
+  private static void sendToSessions(final Set<Session> sessions, final String gameBoardJson,
+      final String deltaJson) {
+    SessionBroadcaster broadcaster = UiWebSocket.getBroadcaster();
     for (Session sessionPlayer : sessions) {
-      try {
-        sessionPlayer.getRemote().sendString(gameBoardJson);
-      } catch (IOException e) {
-        // Add logger here
+      if (!UiWebSocket.isDeltaSession(sessionPlayer)) {
+        broadcaster.send(sessionPlayer, gameBoardJson);
+      } else if (deltaJson != null) {
+        broadcaster.send(sessionPlayer, deltaJson);
       }
     }
   }
@@ -147,5 +572,8 @@ public class PlayGame {
   // Simulates the app crashing
   public static void stop() {
     app.stop();
+    shards.shutdown();
+    journal.close();
+    store.close();
   }
 }
@@ -0,0 +1,178 @@
+package controllers;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+/**
+ * Sends messages to WebSocket sessions without blocking the caller. Every
+ * session has a bounded outbound queue that is drained with Jetty's
+ * asynchronous sends, one message in flight at a time. When a slow client
+ * lets its queue fill up, the SlowConsumerPolicy decides what happens.
+ * @author kenyaplenty
+ *
+ */
+public class SessionBroadcaster {
+
+  /** What to do when a session's outbound queue is full. */
+  public enum SlowConsumerPolicy {
+    /** Drop the oldest queued messages so the latest board still gets through. */
+    DROP_OLDEST,
+    /** Close the session of the client that cannot keep up. */
+    DISCONNECT
+  }
+
+  private final int queueCapacity;
+
+  private final SlowConsumerPolicy policy;
+
+  private final ConcurrentMap<Session, Outbox> outboxes = new ConcurrentHashMap<>();
+
+  private final LongAdder sent = new LongAdder();
+
+  private final LongAdder dropped = new LongAdder();
+
+  private final LongAdder failed = new LongAdder();
+
+  private final LongAdder disconnected = new LongAdder();
+
+  /** Creates a new instance of the SessionBroadcaster.
+   * @param queueCapacity is the number of messages that can wait for each session
+   * @param policy is what to do when a session's queue is full
+   */
+  public SessionBroadcaster(int queueCapacity, SlowConsumerPolicy policy) {
+    this.queueCapacity = queueCapacity;
+    this.policy = policy;
+  }
+
+  /** Queues a message for a session and returns right away.
+   * @param session is the session to send to
+   * @param message is the text to send
+   */
+  public void send(Session session, String message) {
+    outboxes.computeIfAbsent(session, Outbox::new).offer(message);
+  }
+
+  /** Forgets a session and anything still queued for it.
+   * @param session is the session that was closed
+   */
+  public void remove(Session session) {
+    outboxes.remove(session);
+  }
+
+  /** Returns the number of messages handed to clients.
+   * @return the sent count
+   */
+  public long getSentCount() {
+    return sent.sum();
+  }
+
+  /** Returns the number of messages dropped because a queue was full.
+   * @return the dropped count
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  /** Returns the number of sends that failed.
+   * @return the failed count
+   */
+  public long getFailedCount() {
+    return failed.sum();
+  }
+
+  /** Returns the number of sessions closed for being too slow.
+   * @return the disconnected count
+   */
+  public long getDisconnectedCount() {
+    return disconnected.sum();
+  }
+
+  /**
+   * The outbound queue of one session.
+   */
+  private final class Outbox implements WriteCallback {
+
+    private final Session session;
+
+    private final Queue<String> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    Outbox(Session session) {
+      this.session = session;
+    }
+
+    /** Queues a message, applying the slow consumer policy if the queue is full.
+     * @param message is the text to send
+     */
+    void offer(String message) {
+      while (!queue.offer(message)) {
+        if (policy == SlowConsumerPolicy.DISCONNECT) {
+          dropped.increment();
+          disconnect();
+          return;
+        }
+        if (queue.poll() != null) {
+          dropped.increment();
+        }
+      }
+      drain();
+    }
+
+    /** Starts sending the next queued message unless one is already in flight.
+     */
+    private void drain() {
+      while (sending.compareAndSet(false, true)) {
+        String next = queue.poll();
+        if (next != null) {
+          try {
+            session.getRemote().sendString(next, this);
+          } catch (RuntimeException e) {
+            writeFailed(e);
+          }
+          return;
+        }
+        sending.set(false);
+        // A message may have been queued after the poll but before the flag was cleared
+        if (queue.isEmpty()) {
+          return;
+        }
+      }
+    }
+
+    /** Closes the session and forgets its queue.
+     */
+    private void disconnect() {
+      disconnected.increment();
+      outboxes.remove(session, this);
+      queue.clear();
+      session.close(StatusCode.POLICY_VIOLATION, "Client is too slow");
+    }
+
+    @Override
+    public void writeSuccess() {
+      sent.increment();
+      sending.set(false);
+      drain();
+    }
+
+    @Override
+    public void writeFailed(Throwable x) {
+      failed.increment();
+      sending.set(false);
+      if (session.isOpen()) {
+        drain();
+      } else {
+        outboxes.remove(session, this);
+        queue.clear();
+      }
+    }
+  }
+}
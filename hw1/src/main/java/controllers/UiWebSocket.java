@@ -1,23 +1,70 @@
 package controllers;
 
+import io.javalin.http.NotFoundResponse;
+import io.javalin.websocket.WsBinaryMessageContext;
+import io.javalin.websocket.WsBinaryMessageHandler;
 import io.javalin.websocket.WsCloseContext;
 import io.javalin.websocket.WsCloseHandler;
 import io.javalin.websocket.WsConnectContext;
 import io.javalin.websocket.WsConnectHandler;
+import io.javalin.websocket.WsContext;
 import io.javalin.websocket.WsHandler;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import io.javalin.websocket.WsMessageContext;
+import io.javalin.websocket.WsMessageHandler;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Consumer;
+import models.GameBoard;
+import models.Message;
+import models.MoveFrame;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
 
-/** Web socket class: DO NOT MODIFY.
+/** Web socket class. Sockets opened on /gameboard/:gameId join the room of
+ * that game and only receive its updates. Sockets opened on /gameboard join
+ * the default room, which follows whichever game is the default game. A
+ * socket whose game ID is not a number is closed right away.
+ *
+ * <p>By default every update is the whole board JSON. Sockets opened with
+ * ?mode=delta get the whole board once when they connect and then only a
+ * MoveEvent for each move. A delta client whose board version does not match
+ * an event's "pv" has missed an update and sends the text "resync" to get
+ * the whole board again.
+ *
+ * <p>Players can also make moves over the socket instead of POSTing to
+ * /move. A move is a binary MoveFrame of three bytes: player id, x and y.
+ * The move is made in the socket's game. The socket gets the board update
+ * that every socket in the room gets, and the resulting Message JSON. The
+ * Message is sent straight to the socket instead of through its broadcast
+ * queue, so the slow consumer policy never drops it; it may arrive before
+ * the board update.
  * @author Shirish Singh
  *
  */
 public class UiWebSocket implements Consumer<WsHandler>  {
 
+  /** Room of the sockets that did not name a game. */
+  public static final long DEFAULT_ROOM = 0;
+
+  /** Length of a binary move frame: player id, x, y. */
+  public static final int MOVE_FRAME_LENGTH = MoveFrame.LENGTH;
+
   // Store sessions to broadcast a message to all users
-  private static final Queue<Session> SESSIONS = new ConcurrentLinkedQueue<>();
+  private static final Set<Session> SESSIONS = ConcurrentHashMap.newKeySet();
+
+  // Sessions of each game, keyed by game ID
+  private static final ConcurrentMap<Long, Set<Session>> ROOMS = new ConcurrentHashMap<>();
+
+  // Sessions that asked for move events instead of whole boards
+  private static final Set<Session> DELTA_SESSIONS = ConcurrentHashMap.newKeySet();
+
+  // Queues outgoing messages so a slow client never blocks the sender
+  private static final SessionBroadcaster BROADCASTER = new SessionBroadcaster(
+      Integer.getInteger("broadcast.queueCapacity", 16),
+      SessionBroadcaster.SlowConsumerPolicy.valueOf(
+          System.getProperty("broadcast.slowConsumerPolicy", "DROP_OLDEST")));
 
   @Override
   public void accept(final WsHandler t) {
@@ -27,24 +74,153 @@ public class UiWebSocket implements Consumer<WsHandler>  {
 
       @Override
       public void handleConnect(final WsConnectContext ctx) throws Exception {
-        // TODO Auto-generated method stub
+        Long roomId = roomOf(ctx);
+        if (roomId == null) {
+          ctx.session.close(StatusCode.POLICY_VIOLATION, "Malformed game ID");
+          return;
+        }
         SESSIONS.add(ctx.session);
+        ROOMS.compute(roomId, (gameId, room) -> {
+          Set<Session> sessions = room == null ? ConcurrentHashMap.newKeySet() : room;
+          sessions.add(ctx.session);
+          return sessions;
+        });
+        // a stored game is restored when the first socket subscribes to it
+        PlayGame.gameOfRoom(roomId);
+        if ("delta".equals(ctx.queryParam("mode"))) {
+          DELTA_SESSIONS.add(ctx.session);
+          sendSnapshot(ctx);
+        }
       }
 
     });
 
+    // On Message
+    t.onMessage(new WsMessageHandler() {
+
+      @Override
+      public void handleMessage(final WsMessageContext ctx) throws Exception {
+        if ("resync".equals(ctx.message())) {
+          sendSnapshot(ctx);
+        }
+      }
+    });
+
+    // On Binary Message: a move made over the socket
+    t.onBinaryMessage(new WsBinaryMessageHandler() {
+
+      @Override
+      public void handleBinaryMessage(final WsBinaryMessageContext ctx) throws Exception {
+        ctx.session.getRemote().sendStringByFuture(PlayGame.toJson(handleMoveFrame(ctx)));
+      }
+    });
+
     // On Close
     t.onClose(new WsCloseHandler() {
 
       @Override
       public void handleClose(final WsCloseContext ctx) throws Exception {
         SESSIONS.remove(ctx.session);
+        BROADCASTER.remove(ctx.session);
+        DELTA_SESSIONS.remove(ctx.session);
+        Long roomId = roomOf(ctx);
+        if (roomId != null) {
+          ROOMS.computeIfPresent(roomId, (gameId, room) -> {
+            room.remove(ctx.session);
+            return room.isEmpty() ? null : room;
+          });
+        }
       }
     });
   }
 
-  public static Queue<Session> getSessions() {
+  /** Makes the move described by a binary move frame.
+   * @param ctx is the binary message context
+   * @return the Message describing the result of the move
+   */
+  private static Message handleMoveFrame(final WsBinaryMessageContext ctx) {
+    MoveFrame frame = MoveFrame.decode(ctx.data(), ctx.offset(), ctx.length());
+    if (frame == null) {
+      return new Message(false, -1, "ERROR: A move frame is " + MOVE_FRAME_LENGTH + " bytes.");
+    }
+    Long roomId = roomOf(ctx);
+    GameBoard gameBoard = roomId == null ? null : PlayGame.gameOfRoom(roomId);
+    if (gameBoard == null) {
+      return gameNotFound();
+    }
+    try {
+      return PlayGame.makeMove(gameBoard, frame.getPlayerId(), frame.getMoveX(), 
+          frame.getMoveY());
+    } catch (NotFoundResponse e) {
+      // the game was deleted while the move waited for its shard
+      return gameNotFound();
+    }
+  }
+
+  private static Message gameNotFound() {
+    return new Message(false, -1, "ERROR: This game does not exist.");
+  }
+
+  /** Queues the whole board of the socket's game for the socket.
+   * @param ctx is the socket context
+   */
+  private static void sendSnapshot(final WsContext ctx) {
+    Long roomId = roomOf(ctx);
+    GameBoard gameBoard = roomId == null ? null : PlayGame.gameOfRoom(roomId);
+    if (gameBoard != null) {
+      // read and queue the snapshot on the game's shard so no delta slips in between
+      PlayGame.runOnShard(gameBoard, 
+          () -> BROADCASTER.send(ctx.session, gameBoard.getSnapshot().getJson()));
+    }
+  }
+
+  /** Returns the room a socket belongs to.
+   * @param ctx is the socket context
+   * @return the game ID from the socket path, DEFAULT_ROOM if there is none,
+   *     or null if it is not a number
+   */
+  private static Long roomOf(final WsContext ctx) {
+    String gameId = ctx.pathParamMap().get("gameId");
+    if (gameId == null) {
+      return DEFAULT_ROOM;
+    }
+    try {
+      return Long.parseLong(gameId);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  public static Set<Session> getSessions() {
     return SESSIONS;
   }
 
+  public static SessionBroadcaster getBroadcaster() {
+    return BROADCASTER;
+  }
+
+  /** Checks whether a session gets move events instead of whole boards.
+   * @param session is the session to check
+   * @return whether the session is in delta mode
+   */
+  public static boolean isDeltaSession(final Session session) {
+    return DELTA_SESSIONS.contains(session);
+  }
+
+  /** Returns the number of sessions in delta mode.
+   * @return the delta session count
+   */
+  public static int getDeltaSessionCount() {
+    return DELTA_SESSIONS.size();
+  }
+
+  /** Returns the sessions subscribed to a game.
+   * @param gameId is the game ID, or DEFAULT_ROOM
+   * @return the sessions in that room
+   */
+  public static Set<Session> getRoom(final long gameId) {
+    Set<Session> room = ROOMS.get(gameId);
+    return room == null ? Collections.emptySet() : room;
+  }
+
 }
@@ -0,0 +1,87 @@
+package controllers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.util.thread.TryExecutor;
+
+/**
+ * A Jetty ThreadPool that runs every task on a new virtual thread, so a
+ * request blocked on the MoveJournal or the database parks its virtual
+ * thread instead of holding one of a bounded set of server threads. It is
+ * never low on threads, which also lets Jetty hand every task off instead
+ * of running it on the selector thread.
+ *
+ * <p>The build still targets Java 11, so the virtual thread executor is
+ * looked up by reflection and the pool can only be created on Java 21 or
+ * newer.
+ * @author kenyaplenty
+ *
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool, TryExecutor {
+
+  private final ExecutorService executor;
+
+  private final AtomicInteger running = new AtomicInteger();
+
+  /**
+   * Creates the pool.
+   * @throws IllegalStateException if the JVM has no virtual threads
+   */
+  public VirtualThreadPool() {
+    try {
+      this.executor = (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Virtual threads need Java 21 or newer, this is Java "
+          + System.getProperty("java.version"), e);
+    }
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    executor.execute(() -> {
+      running.incrementAndGet();
+      try {
+        task.run();
+      } finally {
+        running.decrementAndGet();
+      }
+    });
+  }
+
+  @Override
+  public boolean tryExecute(Runnable task) {
+    execute(task);
+    return true;
+  }
+
+  @Override
+  public void join() throws InterruptedException {
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public int getThreads() {
+    return running.get();
+  }
+
+  @Override
+  public int getIdleThreads() {
+    return 0;
+  }
+
+  @Override
+  public boolean isLowOnThreads() {
+    return false;
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    executor.shutdown();
+    super.doStop();
+  }
+}
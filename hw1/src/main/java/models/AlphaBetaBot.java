@@ -0,0 +1,145 @@
+package models;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Picks the moves of the computer opponent on the standard 3x3 board with a
+ * full alpha-beta search. The value of every searched position is kept in
+ * one transposition table shared by all games and indexed by the position's
+ * canonical ID in the PositionIndex, so a position met in any game, in any
+ * of its eight orientations, is one array read after the first time.
+ * @author kenyaplenty
+ *
+ */
+public final class AlphaBetaBot {
+
+  private static final int CELLS = 9;
+
+  /** Entry flags: the stored score is exact, a lower bound or an upper bound. */
+  private static final int EXACT = 0;
+  private static final int LOWER = 1;
+  private static final int UPPER = 2;
+
+  /** Offset added to a stored score so that an empty slot, 0, is never a valid entry. */
+  private static final int SCORE_OFFSET = CELLS + 2;
+
+  /** Packed score and flag of every searched position, by canonical ID; 0 if not searched. */
+  private static final AtomicIntegerArray TABLE =
+      new AtomicIntegerArray(PositionIndex.getPositionCount());
+
+  private AlphaBetaBot() {
+  }
+
+  /**
+   * Chooses the best move for a player. A win is taken as early and a loss
+   * put off as long as possible; among equal moves the first cell wins.
+   * @param gameBoard is a 3x3 board
+   * @param bot is the Player the move is chosen for
+   * @return the chosen Move, or null if the board is full
+   */
+  public static Move chooseMove(GameBoard gameBoard, Player bot) {
+    if (gameBoard.getSize() != GameBoard.DEFAULT_SIZE
+        || gameBoard.getWinLength() != GameBoard.DEFAULT_SIZE) {
+      throw new IllegalArgumentException("The computer only plays on the standard 3x3 board");
+    }
+    String cells = gameBoard.getCells();
+    int xMarks = 0;
+    int oMarks = 0;
+    for (int cell = 0; cell < CELLS; cell++) {
+      if (cells.charAt(cell) == 'X') {
+        xMarks |= 1 << cell;
+      } else if (cells.charAt(cell) == 'O') {
+        oMarks |= 1 << cell;
+      }
+    }
+    boolean xToMove = bot.getType() == 'X';
+
+    int bestCell = -1;
+    int alpha = -CELLS - 1;
+    for (int cell = 0; cell < CELLS; cell++) {
+      int bit = 1 << cell;
+      if (((xMarks | oMarks) & bit) != 0) {
+        continue;
+      }
+      int score = xToMove
+          ? -search(bit | xMarks, oMarks, -CELLS - 1, -alpha)
+          : -search(bit | oMarks, xMarks, -CELLS - 1, -alpha);
+      if (score > alpha || bestCell < 0) {
+        alpha = score;
+        bestCell = cell;
+      }
+    }
+    if (bestCell < 0) {
+      return null;
+    }
+    return new Move(bot, bestCell / GameBoard.DEFAULT_SIZE, bestCell % GameBoard.DEFAULT_SIZE);
+  }
+
+  /**
+   * Returns the value of a position for the player to move: 1 plus the
+   * number of free cells if they can force a win, the negative of that if
+   * the other player can, and 0 for a draw.
+   * @param moved is the 9-bit mask of the cells of the player who just moved
+   * @param toMove is the 9-bit mask of the cells of the player to move
+   * @param alpha is the score the player to move is already sure of
+   * @param beta is the score the other player is already sure of
+   * @return the value of the position, exact if it is between alpha and beta
+   */
+  private static int search(int moved, int toMove, int alpha, int beta) {
+    int free = CELLS - Integer.bitCount(moved | toMove);
+    if (BitBoard.isWinning(moved)) {
+      return -(1 + free);
+    }
+    if (free == 0) {
+      return 0;
+    }
+
+    // With as many marks each, the player to move moved first. A board the
+    // counts do not fit is not in the index and is searched without the table.
+    int id = PositionIndex.canonicalId(Integer.bitCount(moved) == Integer.bitCount(toMove)
+        ? PositionIndex.encode(toMove, moved) : PositionIndex.encode(moved, toMove));
+    if (id != PositionIndex.UNREACHABLE) {
+      int entry = TABLE.get(id);
+      if (entry != 0) {
+        int score = (entry >> 2) - SCORE_OFFSET;
+        int flag = entry & 3;
+        if (flag == EXACT || (flag == LOWER && score >= beta)
+            || (flag == UPPER && score <= alpha)) {
+          return score;
+        }
+      }
+    }
+
+    int originalAlpha = alpha;
+    int best = -CELLS - 1;
+    for (int cell = 0; cell < CELLS && alpha < beta; cell++) {
+      int bit = 1 << cell;
+      if (((moved | toMove) & bit) != 0) {
+        continue;
+      }
+      int score = -search(toMove | bit, moved, -beta, -alpha);
+      best = Math.max(best, score);
+      alpha = Math.max(alpha, score);
+    }
+
+    if (id != PositionIndex.UNREACHABLE) {
+      int flag = best <= originalAlpha ? UPPER : best >= beta ? LOWER : EXACT;
+      TABLE.set(id, (best + SCORE_OFFSET) << 2 | flag);
+    }
+    return best;
+  }
+
+  /**
+   * Returns the number of positions in the transposition table.
+   * @return the table size
+   */
+  public static int getTableSize() {
+    int size = 0;
+    for (int id = 0; id < TABLE.length(); id++) {
+      if (TABLE.get(id) != 0) {
+        size++;
+      }
+    }
+    return size;
+  }
+}
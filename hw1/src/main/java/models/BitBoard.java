@@ -0,0 +1,116 @@
+package models;
+
+/**
+ * Stores the marks on a 3x3 board as two 9-bit masks, one for X and one for O.
+ * Cell (x, y) is bit x * 3 + y. This lets GameBoard check free spaces, full
+ * boards and wins with a couple of bit operations instead of scanning the board.
+ * @author kenyaplenty
+ *
+ */
+public final class BitBoard {
+
+  /** Mask with all nine cells set. */
+  public static final int FULL_BOARD = 0x1FF;
+
+  /** The 8 lines that win the game: 3 rows, 3 columns and 2 diagonals. */
+  public static final int[] WIN_LINES = {
+    0b000000111, 0b000111000, 0b111000000,
+    0b001001001, 0b010010010, 0b100100100,
+    0b100010001, 0b001010100
+  };
+
+  /** For every possible 9-bit mask, whether it contains one of the WIN_LINES. */
+  private static final boolean[] WINNING = new boolean[FULL_BOARD + 1];
+
+  static {
+    for (int marks = 0; marks <= FULL_BOARD; marks++) {
+      for (int line : WIN_LINES) {
+        if ((marks & line) == line) {
+          WINNING[marks] = true;
+          break;
+        }
+      }
+    }
+  }
+
+  private int xMarks;
+
+  private int oMarks;
+
+  /**
+   * Returns the bit that represents a cell.
+   * @param x represents the row of the cell
+   * @param y represents the column of the cell
+   * @return the mask with only that cell set
+   */
+  public static int cellBit(int x, int y) {
+    return 1 << (x * 3 + y);
+  }
+
+  /**
+   * Checks whether a set of marks contains a winning line.
+   * @param marks is a 9-bit mask of one player's marks
+   * @return whether the marks contain a full row, column or diagonal
+   */
+  public static boolean isWinning(int marks) {
+    return WINNING[marks & FULL_BOARD];
+  }
+
+  /**
+   * Checks whether a cell is empty.
+   * @param x represents the row of the cell
+   * @param y represents the column of the cell
+   * @return whether neither player has marked the cell
+   */
+  public boolean isFree(int x, int y) {
+    return ((xMarks | oMarks) & cellBit(x, y)) == 0;
+  }
+
+  /**
+   * Marks a cell with a symbol, replacing whatever was there before.
+   * @param symbol is the symbol of the player marking the cell
+   * @param x represents the row of the cell
+   * @param y represents the column of the cell
+   */
+  public void place(char symbol, int x, int y) {
+    int bit = cellBit(x, y);
+    xMarks &= ~bit;
+    oMarks &= ~bit;
+    if (symbol == 'X') {
+      xMarks |= bit;
+    } else if (symbol == 'O') {
+      oMarks |= bit;
+    }
+  }
+
+  /**
+   * Returns the marks made with a symbol.
+   * @param symbol is the symbol whose marks are returned
+   * @return a 9-bit mask of the cells holding that symbol
+   */
+  public int getMarks(char symbol) {
+    if (symbol == 'X') {
+      return xMarks;
+    } else if (symbol == 'O') {
+      return oMarks;
+    }
+    return 0;
+  }
+
+  /**
+   * Checks whether a symbol has completed a line.
+   * @param symbol is the symbol whose marks are checked
+   * @return whether that symbol fills a row, column or diagonal
+   */
+  public boolean hasLine(char symbol) {
+    return isWinning(getMarks(symbol));
+  }
+
+  /**
+   * Checks whether every cell has been marked.
+   * @return whether the board is full
+   */
+  public boolean isFull() {
+    return (xMarks | oMarks) == FULL_BOARD;
+  }
+}
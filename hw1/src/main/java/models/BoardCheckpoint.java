@@ -0,0 +1,95 @@
+package models;
+
+/**
+ * The state of a board after a numbered move, stored every few moves so a
+ * restore can start from it and replay only the moves made after it.
+ * The cells are kept row by row in one string, with '.' for an empty cell.
+ * @author kenyaplenty
+ *
+ */
+public class BoardCheckpoint {
+
+  /** Character stored for a cell that holds no mark. */
+  public static final char EMPTY_CELL = '.';
+
+  private final long seq;
+
+  private final String cells;
+
+  private final int turn;
+
+  private final int winner;
+
+  private final boolean isDraw;
+
+  private final boolean gameStarted;
+
+  /** Creates a new instance of the BoardCheckpoint from a board's current state.
+   * @param seq is the sequence number of the last move applied to the board
+   * @param gameBoard is the board to copy the state of
+   */
+  public BoardCheckpoint(long seq, GameBoard gameBoard) {
+    this(seq, gameBoard.getCells(), gameBoard.getTurn(), gameBoard.getWinner(),
+        gameBoard.getIsDraw(), gameBoard.getGameStarted());
+  }
+
+  /** Creates a new instance of the BoardCheckpoint from stored values.
+   * @param seq is the sequence number of the last move applied to the board
+   * @param cells is the content of the cells, row by row
+   * @param turn is whose turn it is
+   * @param winner is the winner, or 0 if there is none
+   * @param isDraw is whether the game ended in a draw
+   * @param gameStarted is whether the game is being played
+   */
+  public BoardCheckpoint(long seq, String cells, int turn, int winner, boolean isDraw,
+      boolean gameStarted) {
+    this.seq = seq;
+    this.cells = cells;
+    this.turn = turn;
+    this.winner = winner;
+    this.isDraw = isDraw;
+    this.gameStarted = gameStarted;
+  }
+
+  /** Returns the sequence number of the last move applied to the board.
+   * @return the seq
+   */
+  public long getSeq() {
+    return seq;
+  }
+
+  /** Returns the content of the cells, row by row.
+   * @return the cells
+   */
+  public String getCells() {
+    return cells;
+  }
+
+  /** Returns whose turn it is.
+   * @return the turn
+   */
+  public int getTurn() {
+    return turn;
+  }
+
+  /** Returns the winner, or 0 if there is none.
+   * @return the winner
+   */
+  public int getWinner() {
+    return winner;
+  }
+
+  /** Returns whether the game ended in a draw.
+   * @return the isDraw flag
+   */
+  public boolean getIsDraw() {
+    return isDraw;
+  }
+
+  /** Returns whether the game is being played.
+   * @return the gameStarted flag
+   */
+  public boolean getGameStarted() {
+    return gameStarted;
+  }
+}
@@ -0,0 +1,60 @@
+package models;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An encoded copy of a GameBoard at one state version. It is built once per
+ * change to the board and shared by the WebSocket broadcast and every HTTP
+ * read of the board until the next change.
+ * @author kenyaplenty
+ *
+ */
+public final class BoardSnapshot {
+
+  private final long version;
+
+  private final String json;
+
+  private final byte[] utf8;
+
+  /** Creates a new instance of the BoardSnapshot.
+   * @param version is the state version of the board that was encoded
+   * @param json is the JSON encoding of the board
+   */
+  public BoardSnapshot(long version, String json) {
+    this.version = version;
+    this.json = json;
+    this.utf8 = json.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Creates a new instance of the BoardSnapshot from an encoding already in UTF-8.
+   * @param version is the state version of the board that was encoded
+   * @param utf8 is the JSON encoding of the board as UTF-8, which must not be modified later
+   */
+  public BoardSnapshot(long version, byte[] utf8) {
+    this.version = version;
+    this.json = new String(utf8, StandardCharsets.UTF_8);
+    this.utf8 = utf8;
+  }
+
+  /** Returns the state version of the board that was encoded.
+   * @return the version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /** Returns the board as a JSON string.
+   * @return the json
+   */
+  public String getJson() {
+    return json;
+  }
+
+  /** Returns the board as UTF-8 encoded JSON. The array is shared, so it must not be modified.
+   * @return the utf8 bytes
+   */
+  public byte[] getUtf8() {
+    return utf8;
+  }
+}
@@ -1,5 +1,6 @@
 package models;
 
+
 /**
  * GameBoard adds moves to the board and updates game status. 
  * @author kenyaplenty
@@ -8,6 +9,17 @@ package models;
 
 public class GameBoard {
 
+  /** Side length of the standard tic tac toe board. */
+  public static final int DEFAULT_SIZE = 3;
+
+  /** Largest board that can be requested. */
+  public static final int MAX_SIZE = 25;
+
+  /** Directions checked through the last move: row, column, diagonal, anti-diagonal. */
+  private static final int[][] LINE_DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+  private long gameId;
+
   private Player p1;
 
   private Player p2;
@@ -22,15 +34,165 @@ public class GameBoard {
 
   private boolean isDraw;
   
-  /** Creates a new instance of the GameBoard.
+  private int size;
+  
+  private int winLength;
+  
+  private volatile long version;
+  
+  private transient volatile BoardSnapshot snapshot;
+  
+  private transient BitBoard bitBoard;
+  
+  private transient int markedCells;
+  
+  private transient boolean xHasLine;
+  
+  private transient boolean oHasLine;
+  
+  private transient long lastMoveSeq;
+  
+  private transient boolean botOpponent;
+  
+  /** Creates a new instance of the standard 3x3 GameBoard.
    */
   public GameBoard() {
+    this(DEFAULT_SIZE, DEFAULT_SIZE);
+  }
+  
+  /** Creates a new instance of a size x size GameBoard that is won
+   * with winLength marks in a row.
+   * @param size is the number of rows and columns on the board
+   * @param winLength is the number of marks in a row needed to win
+   */
+  public GameBoard(int size, int winLength) {
+    if (size < DEFAULT_SIZE || size > MAX_SIZE || winLength < DEFAULT_SIZE || winLength > size) {
+      throw new IllegalArgumentException("Invalid board " + size + "x" + size 
+          + " with " + winLength + " in a row");
+    }
     this.gameStarted = false;
     this.turn = 1; 
-    this.boardState = new char[3][3];
+    this.boardState = new char[size][size];
     this.winner = 0; 
     this.isDraw = false; 
+    this.size = size; 
+    this.winLength = winLength; 
+    if (size == DEFAULT_SIZE && winLength == DEFAULT_SIZE) {
+      this.bitBoard = new BitBoard();
+    }
+  }
+  
+  /** Returns the state version of the board. It goes up by one every time the board changes.
+   * @return the version
+   */
+  public long getVersion() {
+    return version;
+  }
+  
+  /** Records that the board changed. This is called after the change is
+   * made, so a snapshot taken during the change is never reused.
+   */
+  private void changed() {
+    version++;
+  }
+  
+  /** Returns the board encoded as JSON. The encoding is done at most once per
+   * version and reused by every caller until the board changes again.
+   * @return the BoardSnapshot for the current version
+   */
+  public BoardSnapshot getSnapshot() {
+    long currentVersion = version;
+    BoardSnapshot cached = snapshot;
+    if (cached != null && cached.getVersion() == currentVersion) {
+      return cached;
+    }
+    BoardSnapshot encoded = new BoardSnapshot(currentVersion, JsonEncoder.toUtf8(this));
+    snapshot = encoded;
+    return encoded;
+  }
+  
+  /** Returns the snapshot last encoded by getSnapshot without encoding the
+   * board again. The shard that owns the game encodes it after every change,
+   * so this is the last state it published, read without waiting for it.
+   * @return the last BoardSnapshot, or null if the board was never encoded
+   */
+  public BoardSnapshot getPublishedSnapshot() {
+    return snapshot;
+  }
+  
+  /** Returns the content of a cell as stored, unmarked cells included.
+   * @param x is the row of the cell
+   * @param y is the column of the cell
+   * @return the cell
+   */
+  char getCell(int x, int y) {
+    return boardState[x][y];
+  }
+  
+  /** Returns the sequence number of the last move made in this game,
+   * valid or not, or 0 if no move has been made.
+   * @return the lastMoveSeq
+   */
+  public long getLastMoveSeq() {
+    return lastMoveSeq;
+  }
+  
+  /** Sets the sequence number of the last move, for a board restored from storage.
+   * @param lastMoveSeq is the sequence number of the last stored move
+   */
+  public void setLastMoveSeq(long lastMoveSeq) {
+    this.lastMoveSeq = lastMoveSeq;
+  }
+  
+  /** Numbers a move made in this game. Moves are stored and replayed in this order.
+   * @return the sequence number of the move
+   */
+  public long nextMoveSeq() {
+    return ++lastMoveSeq;
+  }
+  
+  /** Returns whether player 2 of this game is the computer.
+   * @return the botOpponent
+   */
+  public boolean isBotOpponent() {
+    return botOpponent;
+  }
+  
+  /** Sets whether player 2 of this game is the computer. It is stored with
+   * the game, so the computer keeps playing a game restored from storage.
+   * @param botOpponent is whether the computer plays player 2
+   */
+  public void setBotOpponent(boolean botOpponent) {
+    this.botOpponent = botOpponent;
+  }
+  
+  /** Returns the number of rows and columns on the board.
+   * @return the size
+   */
+  public int getSize() {
+    return size;
+  }
+  
+  /** Returns the number of marks in a row needed to win.
+   * @return the winLength
+   */
+  public int getWinLength() {
+    return winLength;
+  }
+  
+  /** Returns the ID of this game.
+   * @return the gameId
+   */
+  public long getGameId() {
+    return gameId;
+  }
 
+  /** Sets the ID of this game.
+   * @param gameId the gameId to set
+   */
+  public void setGameId(long gameId) {
+    this.gameId = gameId;
+    changed();
   }
   
   /** Returns an instance of Player 1.
@@ -46,6 +208,7 @@ public class GameBoard {
   */
   public void setP1(Player p1) {
     this.p1 = p1;
+    changed();
   }
 
   /** Returns an instance of Player 2. 
@@ -60,6 +223,7 @@ public class GameBoard {
   */
   public void setP2(Player p2) {
     this.p2 = p2;
+    changed();
   }
   
   /** Sets the value of gameStarted.
@@ -68,6 +232,7 @@ public class GameBoard {
    */
   public void setGameStarted(boolean gameStarted) {
     this.gameStarted = gameStarted; 
+    changed();
   }
   
   /** Returns the current turn.
@@ -77,12 +242,34 @@ public class GameBoard {
     return this.turn; 
   }
   
+  /** Returns whether the game has started and is not over yet.
+   * @return the gameStarted flag
+   */
+  public boolean getGameStarted() {
+    return this.gameStarted; 
+  }
+  
+  /** Returns the id of the player who won, or 0 if nobody has won.
+   * @return the winner
+   */
+  public int getWinner() {
+    return this.winner; 
+  }
+  
+  /** Returns whether the game ended in a draw.
+   * @return the isDraw flag
+   */
+  public boolean getIsDraw() {
+    return this.isDraw; 
+  }
+  
   /** 
    * Sets the turn field to the integer passed in using the turn parameter.
    * @param turn represents the current player's turn as an integer
    */
   public void setTurn(int turn) {
     this.turn = turn; 
+    changed();
   }
   
   /**
@@ -113,10 +300,22 @@ public class GameBoard {
   private boolean isSpaceFree(Move move) {
     int moveX = move.getMoveX(); 
     int moveY = move.getMoveY(); 
-    if (boardState[moveX][moveY] == 'X' || boardState[moveX][moveY] == 'O') {
+    if (moveX < 0 || moveX >= size || moveY < 0 || moveY >= size) {
       return false; 
     }
-    return true; 
+    if (bitBoard != null) {
+      return bitBoard.isFree(moveX, moveY); 
+    }
+    return !isMarked(boardState[moveX][moveY]); 
+  }
+  
+  /**
+   * Checks whether a cell holds a player's mark.
+   * @param cell is the content of a cell in boardState
+   * @return whether the cell holds an X or an O
+   */
+  private static boolean isMarked(char cell) {
+    return cell == 'X' || cell == 'O'; 
   }
   
   /** 
@@ -127,111 +326,226 @@ public class GameBoard {
     int moveX = move.getMoveX();
     int moveY = move.getMoveY(); 
     char symbol = move.getPlayer().getType();
+    char previous = this.boardState[moveX][moveY];
     this.boardState[moveX][moveY] = symbol;
+    if (bitBoard != null) {
+      this.bitBoard.place(symbol, moveX, moveY);
+    } else {
+      updateLines(previous, symbol, moveX, moveY);
+    }
     this.turn = move.getPlayer().getId() == 1 ? 2 : 1; 
+    changed();
   }
  
   
+  /**
+   * Returns the content of the cells row by row, with BoardCheckpoint.EMPTY_CELL
+   * for a cell that holds no mark.
+   * @return a string of size * size characters
+   */
+  public String getCells() {
+    StringBuilder cells = new StringBuilder(size * size);
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        char cell = boardState[i][j];
+        cells.append(isMarked(cell) ? cell : BoardCheckpoint.EMPTY_CELL);
+      }
+    }
+    return cells.toString();
+  }
+  
+  /**
+   * Puts a new board into the state stored in a checkpoint. Players are not
+   * part of a checkpoint and are left as they are.
+   * @param checkpoint is a BoardCheckpoint taken from a board of the same size
+   */
+  public void restoreCheckpoint(BoardCheckpoint checkpoint) {
+    String cells = checkpoint.getCells();
+    if (cells.length() != size * size) {
+      throw new IllegalArgumentException("Checkpoint of " + cells.length() 
+          + " cells does not fit a " + size + "x" + size + " board");
+    }
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        char symbol = cells.charAt(i * size + j);
+        if (isMarked(symbol)) {
+          char previous = this.boardState[i][j];
+          this.boardState[i][j] = symbol;
+          if (bitBoard != null) {
+            this.bitBoard.place(symbol, i, j);
+          } else {
+            updateLines(previous, symbol, i, j);
+          }
+        }
+      }
+    }
+    this.turn = checkpoint.getTurn(); 
+    this.winner = checkpoint.getWinner(); 
+    this.isDraw = checkpoint.getIsDraw(); 
+    this.gameStarted = checkpoint.getGameStarted(); 
+    changed();
+  }
+  
   /**
    * Checks to see if a specific player has won the game.
    * @param player represents the player whose victory we are assessing
    * @return
    */
   public boolean playerWonGame(Player player) {
-    if (playerWonGameWithDiagonalLine(player) || playerWonGameWithHorizontalLine(player)
-        || playerWonGameWithVerticalLine(player)) {
-      return true; 
+    char playerSymbol = player.getType();
+    if (bitBoard != null) {
+      int status = positionStatus(); 
+      if (status == PositionIndex.UNREACHABLE) {
+        return bitBoard.hasLine(playerSymbol); 
+      }
+      return status == (playerSymbol == firstSymbol() 
+          ? PositionIndex.FIRST_PLAYER_WON : PositionIndex.SECOND_PLAYER_WON); 
+    }
+    if (playerSymbol == 'X') {
+      return xHasLine; 
+    } else if (playerSymbol == 'O') {
+      return oHasLine; 
     }
     return false; 
-    
   }
   
   /**
-   * Checks whether or not the game has ended in a draw. 
-   * @return boolean indicating whether or not the game has been won
+   * Returns the symbol of the player who moves first, player 1.
+   * @return the symbol, X if there is no player 1 yet
    */
-  public boolean isGameDraw() {
-    if (this.winner == 0 && isBoardFull() && this.gameStarted) {
-      return true; 
-    }
-    return false; 
+  private char firstSymbol() {
+    return p1 == null ? 'X' : p1.getType(); 
   }
   
   /**
-   * Changes the necessary parameters so the game can end in a draw.
+   * Looks the status of a 3x3 board up in the PositionIndex, which every
+   * game shares, instead of working it out again.
+   * @return the PositionIndex status, or PositionIndex.UNREACHABLE for a
+   *     position no game can reach, such as one set up cell by cell
    */
-  
-  public void setGameDraw() {
-    this.gameStarted = false; 
-    this.winner = 0; 
-    this.isDraw = true; 
+  private int positionStatus() {
+    char first = firstSymbol(); 
+    int code = PositionIndex.encode(bitBoard.getMarks(first), 
+        bitBoard.getMarks(first == 'X' ? 'O' : 'X')); 
+    if (PositionIndex.canonicalId(code) == PositionIndex.UNREACHABLE) {
+      return PositionIndex.UNREACHABLE; 
+    }
+    return PositionIndex.getStatus(code); 
   }
   
-  /** 
-   * Checks to see if a player has won with a diagonal line.
-   * @param player represents the player whose victory we are assessing
-   * @return whether a player has won with a diagonal line
+  /**
+   * Updates the marked cell count and the completed lines after a cell
+   * changes. Only the lines through the changed cell can have been completed,
+   * so a normal move costs O(winLength) no matter how big the board is.
+   * @param previous is what the cell held before the move
+   * @param symbol is the symbol that was placed in the cell
+   * @param moveX represents the row of the cell
+   * @param moveY represents the column of the cell
    */
-  private boolean playerWonGameWithDiagonalLine(Player player) {
-    char playerSymbol = player.getType();
-    if (boardState[0][0] == playerSymbol && boardState[1][1] == playerSymbol 
-        && boardState[2][2] == playerSymbol) {
-      return true; 
-    } else if (boardState[0][2] == playerSymbol && boardState[1][1] == playerSymbol 
-        && boardState[2][0] == playerSymbol) {
-      return true; 
+  private void updateLines(char previous, char symbol, int moveX, int moveY) {
+    if (!isMarked(previous) && isMarked(symbol)) {
+      markedCells++; 
+    } else if (isMarked(previous) && !isMarked(symbol)) {
+      markedCells--; 
+    }
+    
+    if (isMarked(previous) && previous != symbol) {
+      // Overwriting a mark can break a line anywhere on the board
+      xHasLine = false; 
+      oHasLine = false; 
+      for (int i = 0; i < size; i++) {
+        for (int j = 0; j < size; j++) {
+          markLineThrough(i, j);
+        }
+      }
+    } else {
+      markLineThrough(moveX, moveY);
     }
-    return false; 
   }
   
   /**
-   * Checks to see if a player has won with a horizontal line. 
-   * @param player represents the player whose victory we are assessing
-   * @return whether a player has won with a horizontal line
+   * Records a completed line if the cell is part of one.
+   * @param x represents the row of the cell
+   * @param y represents the column of the cell
    */
-  private boolean playerWonGameWithHorizontalLine(Player player) {
-    char playerSymbol = player.getType();
-    for (int i = 0; i < 3; i++) {
-      if (boardState[i][0] == playerSymbol && boardState[i][1] == playerSymbol 
-          && boardState[i][2] == playerSymbol) {
-        return true; 
+  private void markLineThrough(int x, int y) {
+    char symbol = boardState[x][y];
+    if (!isMarked(symbol)) {
+      return; 
+    }
+    for (int[] direction : LINE_DIRECTIONS) {
+      int inRow = 1 + countInDirection(symbol, x, y, direction[0], direction[1])
+          + countInDirection(symbol, x, y, -direction[0], -direction[1]);
+      if (inRow >= winLength) {
+        if (symbol == 'X') {
+          xHasLine = true; 
+        } else {
+          oHasLine = true; 
+        }
+        return; 
       }
-    
     }
-    return false;  
   }
   
   /**
-   * Checks to see if a player has won with a vertical line.
-   * @param player represents the player whose victory we are assessing
-   * @return whether a player has won with a vertical line
-   * 
+   * Counts how many cells in a row hold a symbol, starting next to a cell.
+   * @param symbol is the symbol being counted
+   * @param x represents the row of the starting cell
+   * @param y represents the column of the starting cell
+   * @param dx is the step taken along the rows
+   * @param dy is the step taken along the columns
+   * @return the number of consecutive cells holding symbol, at most winLength - 1
+   */
+  private int countInDirection(char symbol, int x, int y, int dx, int dy) {
+    int count = 0; 
+    int i = x + dx; 
+    int j = y + dy; 
+    while (count < winLength - 1 && i >= 0 && i < size && j >= 0 && j < size 
+        && boardState[i][j] == symbol) {
+      count++; 
+      i += dx; 
+      j += dy; 
+    }
+    return count; 
+  }
+  
+  /**
+   * Checks whether or not the game has ended in a draw. 
+   * @return boolean indicating whether or not the game has been won
    */
-  private boolean playerWonGameWithVerticalLine(Player player) {
-    char playerSymbol = player.getType(); 
-    for (int i = 0; i < 3; i++) {
-      if  (boardState[0][i] == playerSymbol && boardState[1][i] == playerSymbol 
-          && boardState[2][i] == playerSymbol) {
-        return true; 
+  public boolean isGameDraw() {
+    if (bitBoard != null && this.gameStarted) {
+      int status = positionStatus(); 
+      if (status != PositionIndex.UNREACHABLE) {
+        return this.winner == 0 && status == PositionIndex.DRAW; 
       }
-    
+    }
+    if (this.winner == 0 && isBoardFull() && this.gameStarted) {
+      return true; 
     }
     return false; 
   }
   
+  /**
+   * Changes the necessary parameters so the game can end in a draw.
+   */
+  
+  public void setGameDraw() {
+    this.gameStarted = false; 
+    this.winner = 0; 
+    this.isDraw = true; 
+    changed();
+  }
+  
   /**
    * Checks to see if all the spaces on the board are full. 
    * @return a boolean representing whether or not all the spaces on the board are full
    */
   private boolean isBoardFull() {
-    for (int i = 0; i < 3; i++) {
-      for  (int j = 0; j < 3; j++) {
-        if (boardState[i][j] != 'X' && boardState[i][j] != 'O') {
-          return false; 
-        }
-      }
+    if (bitBoard != null) {
+      return bitBoard.isFull(); 
     }
-    return true; 
+    return markedCells == size * size; 
   }
   
   /**
@@ -242,6 +556,7 @@ public class GameBoard {
   public void endsGameAndSetsWinner(Player player) {
     this.winner = player.getId(); 
     this.gameStarted = false; 
+    changed();
   
   }
  
@@ -278,8 +593,8 @@ public class GameBoard {
    */
   public String toString() {
     String gameBoardString = ""; 
-    for (int i = 0; i < 3; i++)  {
-      for (int j = 0; j < 3; j++) {
+    for (int i = 0; i < size; i++)  {
+      for (int j = 0; j < size; j++) {
         gameBoardString += Character.toString(boardState[i][j]) + " ";
       }
     }
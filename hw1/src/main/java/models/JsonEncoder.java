@@ -0,0 +1,302 @@
+package models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes a GameBoard or a Message as JSON without reflection. The output is
+ * byte for byte what new Gson().toJson(...) gives as UTF-8: the same field
+ * order, nulls left out, and the same escaping, including Gson's HTML-safe
+ * escapes, so app.js and any other client see no difference.
+ *
+ * <p>The UTF-8 bytes are written straight into a buffer taken from a small
+ * shared pool and put back after the copy, so encoding a board makes no
+ * garbage besides the returned copy. A thread-local buffer would not be
+ * reused with virtual threads, where every request has a thread of its own.
+ * When the pool is empty a new encoder is made, and one that does not fit
+ * back is dropped.
+ * @author kenyaplenty
+ *
+ */
+public final class JsonEncoder {
+
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int INITIAL_CAPACITY = 512;
+
+  private static final BlockingQueue<JsonEncoder> POOL =
+      new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+  private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+  private int length;
+
+  private JsonEncoder() {
+  }
+
+  /** Encodes a GameBoard.
+   * @param gameBoard is the GameBoard to encode
+   * @return the JSON as UTF-8 bytes
+   */
+  public static byte[] toUtf8(GameBoard gameBoard) {
+    JsonEncoder encoder = acquire();
+    try {
+      encoder.writeGameBoard(gameBoard);
+      return Arrays.copyOf(encoder.buffer, encoder.length);
+    } finally {
+      POOL.offer(encoder);
+    }
+  }
+
+  /** Encodes a Message.
+   * @param message is the Message to encode
+   * @return the JSON as UTF-8 bytes
+   */
+  public static byte[] toUtf8(Message message) {
+    JsonEncoder encoder = acquire();
+    try {
+      encoder.writeMessage(message);
+      return Arrays.copyOf(encoder.buffer, encoder.length);
+    } finally {
+      POOL.offer(encoder);
+    }
+  }
+
+  /** Encodes a Message as a string, for sending as a WebSocket text frame.
+   * @param message is the Message to encode
+   * @return the JSON string
+   */
+  public static String toJson(Message message) {
+    JsonEncoder encoder = acquire();
+    try {
+      encoder.writeMessage(message);
+      return new String(encoder.buffer, 0, encoder.length, StandardCharsets.UTF_8);
+    } finally {
+      POOL.offer(encoder);
+    }
+  }
+
+  /** Takes an empty encoder from the pool, or makes one if the pool is empty.
+   * @return the JsonEncoder
+   */
+  private static JsonEncoder acquire() {
+    JsonEncoder encoder = POOL.poll();
+    if (encoder == null) {
+      return new JsonEncoder();
+    }
+    encoder.length = 0;
+    return encoder;
+  }
+
+  private void writeGameBoard(GameBoard gameBoard) {
+    int size = gameBoard.getSize();
+    // a cell takes at most 9 bytes, an escape in quotes and a comma; the rest fits in 256
+    ensureCapacity(256 + size * (2 + size * 9));
+    writeAscii("{\"gameId\":");
+    writeLong(gameBoard.getGameId());
+    writePlayer(",\"p1\":", gameBoard.getP1());
+    writePlayer(",\"p2\":", gameBoard.getP2());
+    writeAscii(",\"gameStarted\":");
+    writeBoolean(gameBoard.getGameStarted());
+    writeAscii(",\"turn\":");
+    writeLong(gameBoard.getTurn());
+    writeAscii(",\"boardState\":[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        writeByte(',');
+      }
+      writeByte('[');
+      for (int j = 0; j < size; j++) {
+        if (j > 0) {
+          writeByte(',');
+        }
+        writeByte('"');
+        writeChar(gameBoard.getCell(i, j));
+        writeByte('"');
+      }
+      writeByte(']');
+    }
+    writeAscii("],\"winner\":");
+    writeLong(gameBoard.getWinner());
+    writeAscii(",\"isDraw\":");
+    writeBoolean(gameBoard.getIsDraw());
+    writeAscii(",\"size\":");
+    writeLong(size);
+    writeAscii(",\"winLength\":");
+    writeLong(gameBoard.getWinLength());
+    writeAscii(",\"version\":");
+    writeLong(gameBoard.getVersion());
+    writeByte('}');
+  }
+
+  /** Writes a Player field, or nothing if the Player is null.
+   * @param name is the field name with its leading comma, quotes and colon
+   * @param player is the Player
+   */
+  private void writePlayer(String name, Player player) {
+    if (player == null) {
+      return;
+    }
+    writeAscii(name);
+    writeAscii("{\"type\":\"");
+    writeChar(player.getType());
+    writeAscii("\",\"id\":");
+    writeLong(player.getId());
+    writeByte('}');
+  }
+
+  private void writeMessage(Message message) {
+    writeAscii("{\"moveValidity\":");
+    writeBoolean(message.getMoveValidity());
+    writeAscii(",\"code\":");
+    writeLong(message.getCode());
+    String text = message.getMessage();
+    if (text != null) {
+      writeAscii(",\"message\":\"");
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (Character.isHighSurrogate(c) && i + 1 < text.length()
+            && Character.isLowSurrogate(text.charAt(i + 1))) {
+          writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+        } else {
+          writeChar(c);
+        }
+      }
+      writeByte('"');
+    }
+    writeByte('}');
+  }
+
+  /** Writes one char of a JSON string, escaped the way Gson escapes it.
+   * A surrogate that is not part of a pair is written as '?', as
+   * String.getBytes does.
+   * @param c is the char
+   */
+  private void writeChar(char c) {
+    ensureCapacity(6);
+    switch (c) {
+      case '"':
+        writeEscape('"');
+        return;
+      case '\\':
+        writeEscape('\\');
+        return;
+      case '\t':
+        writeEscape('t');
+        return;
+      case '\b':
+        writeEscape('b');
+        return;
+      case '\n':
+        writeEscape('n');
+        return;
+      case '\r':
+        writeEscape('r');
+        return;
+      case '\f':
+        writeEscape('f');
+        return;
+      case '<':
+      case '>':
+      case '&':
+      case '=':
+      case '\'':
+      case '\u2028':
+      case '\u2029':
+        writeUnicodeEscape(c);
+        return;
+      default:
+        break;
+    }
+    if (c < 0x20) {
+      writeUnicodeEscape(c);
+    } else if (c < 0x80) {
+      buffer[length++] = (byte) c;
+    } else if (Character.isSurrogate(c)) {
+      buffer[length++] = '?';
+    } else {
+      writeCodePoint(c);
+    }
+  }
+
+  private void writeEscape(char c) {
+    buffer[length++] = '\\';
+    buffer[length++] = (byte) c;
+  }
+
+  private void writeUnicodeEscape(char c) {
+    buffer[length++] = '\\';
+    buffer[length++] = 'u';
+    buffer[length++] = HEX[c >> 12 & 0xf];
+    buffer[length++] = HEX[c >> 8 & 0xf];
+    buffer[length++] = HEX[c >> 4 & 0xf];
+    buffer[length++] = HEX[c & 0xf];
+  }
+
+  /** Writes a code point of 0x80 or above as UTF-8.
+   * @param codePoint is the code point
+   */
+  private void writeCodePoint(int codePoint) {
+    ensureCapacity(4);
+    if (codePoint < 0x800) {
+      buffer[length++] = (byte) (0xc0 | codePoint >> 6);
+    } else if (codePoint < 0x10000) {
+      buffer[length++] = (byte) (0xe0 | codePoint >> 12);
+      buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+    } else {
+      buffer[length++] = (byte) (0xf0 | codePoint >> 18);
+      buffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+      buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+    }
+    buffer[length++] = (byte) (0x80 | codePoint & 0x3f);
+  }
+
+  private void writeBoolean(boolean value) {
+    writeAscii(value ? "true" : "false");
+  }
+
+  private void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      writeAscii("-9223372036854775808");
+      return;
+    }
+    ensureCapacity(20);
+    if (value < 0) {
+      buffer[length++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (long rest = value / 10; rest != 0; rest /= 10) {
+      digits++;
+    }
+    length += digits;
+    int position = length;
+    do {
+      buffer[--position] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+  }
+
+  /** Writes a string known to be ASCII with nothing to escape.
+   * @param text is the string
+   */
+  private void writeAscii(String text) {
+    ensureCapacity(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      buffer[length++] = (byte) text.charAt(i);
+    }
+  }
+
+  private void writeByte(char c) {
+    ensureCapacity(1);
+    buffer[length++] = (byte) c;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (length + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+    }
+  }
+}
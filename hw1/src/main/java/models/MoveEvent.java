@@ -0,0 +1,110 @@
+package models;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * A compact description of one move, sent over the WebSocket to clients in
+ * delta mode instead of the whole board. A client applies the event only if
+ * its board is at previousVersion; otherwise it has missed an update and
+ * asks for a full snapshot.
+ * @author kenyaplenty
+ *
+ */
+public class MoveEvent {
+
+  @SerializedName("pv")
+  private long previousVersion;
+
+  @SerializedName("v")
+  private long version;
+
+  @SerializedName("x")
+  private int moveX;
+
+  @SerializedName("y")
+  private int moveY;
+
+  @SerializedName("s")
+  private char symbol;
+
+  @SerializedName("t")
+  private int turn;
+
+  @SerializedName("w")
+  private int winner;
+
+  @SerializedName("d")
+  private boolean isDraw;
+
+  /** Creates a new instance of the MoveEvent from a move that was just applied.
+   * @param previousVersion is the version of the board before the move
+   * @param move is the move that was applied
+   * @param gameBoard is the board after the move
+   */
+  public MoveEvent(long previousVersion, Move move, GameBoard gameBoard) {
+    this.previousVersion = previousVersion;
+    this.version = gameBoard.getVersion();
+    this.moveX = move.getMoveX();
+    this.moveY = move.getMoveY();
+    this.symbol = move.getPlayer().getType();
+    this.turn = gameBoard.getTurn();
+    this.winner = gameBoard.getWinner();
+    this.isDraw = gameBoard.getIsDraw();
+  }
+
+  /** Returns the version of the board before the move.
+   * @return the previousVersion
+   */
+  public long getPreviousVersion() {
+    return previousVersion;
+  }
+
+  /** Returns the version of the board after the move.
+   * @return the version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /** Returns the x coordinate of the move.
+   * @return the moveX
+   */
+  public int getMoveX() {
+    return moveX;
+  }
+
+  /** Returns the y coordinate of the move.
+   * @return the moveY
+   */
+  public int getMoveY() {
+    return moveY;
+  }
+
+  /** Returns the symbol that was placed.
+   * @return the symbol
+   */
+  public char getSymbol() {
+    return symbol;
+  }
+
+  /** Returns whose turn it is after the move.
+   * @return the turn
+   */
+  public int getTurn() {
+    return turn;
+  }
+
+  /** Returns the winner after the move, or 0 if there is none.
+   * @return the winner
+   */
+  public int getWinner() {
+    return winner;
+  }
+
+  /** Returns whether the game is a draw after the move.
+   * @return the isDraw flag
+   */
+  public boolean getIsDraw() {
+    return isDraw;
+  }
+}
@@ -0,0 +1,81 @@
+package models;
+
+/**
+ * A move sent over the WebSocket as a binary frame of three bytes: the
+ * player id, x and y. Each byte is read as an unsigned number, so a value
+ * that is off the board stays off the board and is rejected by the move
+ * check like any other invalid move.
+ * @author kenyaplenty
+ *
+ */
+public final class MoveFrame {
+
+  /** Length of a move frame in bytes. */
+  public static final int LENGTH = 3;
+
+  private final int playerId;
+
+  private final int moveX;
+
+  private final int moveY;
+
+  /** Creates a new instance of the MoveFrame.
+   * @param playerId is the id of the player making the move
+   * @param moveX is the x coordinate of the move
+   * @param moveY is the y coordinate of the move
+   */
+  public MoveFrame(int playerId, int moveX, int moveY) {
+    this.playerId = playerId;
+    this.moveX = moveX;
+    this.moveY = moveY;
+  }
+
+  /** Reads a move frame out of a binary message.
+   * @param data is the buffer holding the message
+   * @param offset is where the message starts in the buffer
+   * @param length is the number of bytes in the message
+   * @return the MoveFrame, or null if the message is not LENGTH bytes long
+   */
+  public static MoveFrame decode(byte[] data, int offset, int length) {
+    if (length != LENGTH) {
+      return null;
+    }
+    return new MoveFrame(data[offset] & 0xFF, data[offset + 1] & 0xFF, data[offset + 2] & 0xFF);
+  }
+
+  /** Writes the move as a frame.
+   * @return the LENGTH bytes of the frame
+   * @throws IllegalArgumentException if a field does not fit in a byte
+   */
+  public byte[] encode() {
+    return new byte[] {toByte(playerId), toByte(moveX), toByte(moveY)};
+  }
+
+  private static byte toByte(int value) {
+    if (value < 0 || value > 0xFF) {
+      throw new IllegalArgumentException(value + " does not fit in a move frame");
+    }
+    return (byte) value;
+  }
+
+  /** Returns the id of the player making the move.
+   * @return the playerId
+   */
+  public int getPlayerId() {
+    return playerId;
+  }
+
+  /** Returns the x coordinate of the move.
+   * @return the moveX
+   */
+  public int getMoveX() {
+    return moveX;
+  }
+
+  /** Returns the y coordinate of the move.
+   * @return the moveY
+   */
+  public int getMoveY() {
+    return moveY;
+  }
+}
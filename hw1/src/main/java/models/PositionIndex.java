@@ -0,0 +1,290 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * Numbers every position reachable on the standard 3x3 board up to rotation
+ * and reflection, and keeps what follows from each position (who has won,
+ * whether it is a draw, which cells are free) in tables shared by all games.
+ * A position is written in base 3, one digit per cell with bit order as in
+ * BitBoard: 0 for empty, 1 for a mark of the player who moved first and 2
+ * for a mark of the other player. The eight symmetric images of a position
+ * share one canonical ID, so a position seen in any game, in any
+ * orientation, is a table lookup. GameBoard looks up whether a 3x3 game
+ * is won or drawn here, and AlphaBetaBot keys its transposition table by
+ * these IDs.
+ * @author kenyaplenty
+ *
+ */
+public final class PositionIndex {
+
+  /** Returned by canonicalId for a position no game can reach. */
+  public static final int UNREACHABLE = -1;
+
+  /** Status of a position: the game goes on, either player has won, or it is a draw. */
+  public static final int IN_PROGRESS = 0;
+  public static final int FIRST_PLAYER_WON = 1;
+  public static final int SECOND_PLAYER_WON = 2;
+  public static final int DRAW = 3;
+
+  private static final int CELLS = 9;
+
+  /** Number of base 3 codes of a 3x3 board. */
+  private static final int CODES = 19683;
+
+  /** Cell a cell moves to under each of the 4 rotations and their reflections. */
+  private static final int[][] SYMMETRIES = new int[8][CELLS];
+
+  /** Powers of 3 by cell. */
+  private static final int[] DIGIT = new int[CELLS];
+
+  /** Canonical ID of every code, or UNREACHABLE. */
+  private static final int[] CODE_TO_ID = new int[CODES];
+
+  /** The symmetry that takes every code to its canonical code. */
+  private static final byte[] CODE_TO_SYMMETRY = new byte[CODES];
+
+  /** Status of every canonical position. */
+  private static final byte[] STATUS;
+
+  /** Free cells of every canonical position, as a 9-bit mask in canonical orientation. */
+  private static final short[] FREE_CELLS;
+
+  private static int positionCount;
+
+  static {
+    for (int cell = 0, digit = 1; cell < CELLS; cell++, digit *= 3) {
+      DIGIT[cell] = digit;
+    }
+    for (int s = 0; s < SYMMETRIES.length; s++) {
+      for (int x = 0; x < 3; x++) {
+        for (int y = 0; y < 3; y++) {
+          int rotatedX = x;
+          int rotatedY = y;
+          for (int turn = 0; turn < s % 4; turn++) {
+            int previousX = rotatedX;
+            rotatedX = rotatedY;
+            rotatedY = 2 - previousX;
+          }
+          if (s >= 4) {
+            rotatedY = 2 - rotatedY;
+          }
+          SYMMETRIES[s][x * 3 + y] = rotatedX * 3 + rotatedY;
+        }
+      }
+    }
+
+    Arrays.fill(CODE_TO_ID, UNREACHABLE);
+    int[] canonicalCodes = new int[CODES];
+    int[] idByCanonical = new int[CODES];
+    Arrays.fill(idByCanonical, UNREACHABLE);
+    reach(0, 0, true, canonicalCodes, idByCanonical);
+    STATUS = new byte[positionCount];
+    FREE_CELLS = new short[positionCount];
+    for (int id = 0; id < positionCount; id++) {
+      int first = marksOf(canonicalCodes[id], 1);
+      int second = marksOf(canonicalCodes[id], 2);
+      STATUS[id] = (byte) status(first, second);
+      FREE_CELLS[id] = (short) (~(first | second) & BitBoard.FULL_BOARD);
+    }
+  }
+
+  private PositionIndex() {
+  }
+
+  /**
+   * Numbers a position and every position that can follow it. Only the
+   * class initializer calls this, so the tables are complete before use.
+   * @param first is the 9-bit mask of the cells of the player who moved first
+   * @param second is the 9-bit mask of the cells of the other player
+   * @param firstToMove is whether the player who moved first is to move
+   * @param canonicalCodes collects the canonical code of every new ID
+   * @param idByCanonical holds the ID given to every canonical code so far
+   */
+  private static void reach(int first, int second, boolean firstToMove,
+      int[] canonicalCodes, int[] idByCanonical) {
+    int code = encode(first, second);
+    if (CODE_TO_ID[code] != UNREACHABLE) {
+      return;
+    }
+    int canonical = CODES;
+    int symmetry = 0;
+    for (int s = 0; s < SYMMETRIES.length; s++) {
+      int image = transform(code, s);
+      if (image < canonical) {
+        canonical = image;
+        symmetry = s;
+      }
+    }
+    int id = idByCanonical[canonical];
+    if (id == UNREACHABLE) {
+      id = positionCount++;
+      canonicalCodes[id] = canonical;
+      idByCanonical[canonical] = id;
+    }
+    CODE_TO_ID[code] = id;
+    CODE_TO_SYMMETRY[code] = (byte) symmetry;
+
+    if (status(first, second) != IN_PROGRESS) {
+      return;
+    }
+    for (int cell = 0; cell < CELLS; cell++) {
+      int bit = 1 << cell;
+      if (((first | second) & bit) == 0) {
+        if (firstToMove) {
+          reach(first | bit, second, false, canonicalCodes, idByCanonical);
+        } else {
+          reach(first, second | bit, true, canonicalCodes, idByCanonical);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns what a position means for the game.
+   * @param first is the 9-bit mask of the cells of the player who moved first
+   * @param second is the 9-bit mask of the cells of the other player
+   * @return IN_PROGRESS, FIRST_PLAYER_WON, SECOND_PLAYER_WON or DRAW
+   */
+  private static int status(int first, int second) {
+    if (BitBoard.isWinning(first)) {
+      return FIRST_PLAYER_WON;
+    } else if (BitBoard.isWinning(second)) {
+      return SECOND_PLAYER_WON;
+    } else if ((first | second) == BitBoard.FULL_BOARD) {
+      return DRAW;
+    }
+    return IN_PROGRESS;
+  }
+
+  /**
+   * Moves every cell of a code to where a symmetry takes it.
+   * @param code is a position
+   * @param symmetry is the index of the symmetry
+   * @return the code of the image of the position
+   */
+  private static int transform(int code, int symmetry) {
+    int image = 0;
+    for (int cell = 0; cell < CELLS; cell++) {
+      int digit = code / DIGIT[cell] % 3;
+      image += digit * DIGIT[SYMMETRIES[symmetry][cell]];
+    }
+    return image;
+  }
+
+  /**
+   * Returns the cells of a code that hold a digit.
+   * @param code is a position
+   * @param digit is 1 for the player who moved first and 2 for the other one
+   * @return the 9-bit mask of those cells
+   */
+  private static int marksOf(int code, int digit) {
+    int marks = 0;
+    for (int cell = 0; cell < CELLS; cell++) {
+      if (code / DIGIT[cell] % 3 == digit) {
+        marks |= 1 << cell;
+      }
+    }
+    return marks;
+  }
+
+  /**
+   * Writes a position as a code.
+   * @param first is the 9-bit mask of the cells of the player who moved first
+   * @param second is the 9-bit mask of the cells of the other player
+   * @return the code of the position
+   */
+  public static int encode(int first, int second) {
+    int code = 0;
+    for (int cell = 0; cell < CELLS; cell++) {
+      if ((first & 1 << cell) != 0) {
+        code += DIGIT[cell];
+      } else if ((second & 1 << cell) != 0) {
+        code += 2 * DIGIT[cell];
+      }
+    }
+    return code;
+  }
+
+  /**
+   * Writes the position of a 3x3 GameBoard as a code. Player 1 always moves
+   * first, so its marks are the first player's marks.
+   * @param gameBoard is a 3x3 board
+   * @return the code of the position
+   */
+  public static int encode(GameBoard gameBoard) {
+    if (gameBoard.getSize() != GameBoard.DEFAULT_SIZE
+        || gameBoard.getWinLength() != GameBoard.DEFAULT_SIZE) {
+      throw new IllegalArgumentException("Only the standard 3x3 board is indexed");
+    }
+    char firstSymbol = gameBoard.getP1() == null ? 'X' : gameBoard.getP1().getType();
+    String cells = gameBoard.getCells();
+    int code = 0;
+    for (int cell = 0; cell < CELLS; cell++) {
+      char symbol = cells.charAt(cell);
+      if (symbol == firstSymbol) {
+        code += DIGIT[cell];
+      } else if (symbol != BoardCheckpoint.EMPTY_CELL) {
+        code += 2 * DIGIT[cell];
+      }
+    }
+    return code;
+  }
+
+  /**
+   * Returns the ID shared by a position and its symmetric images.
+   * @param code is a position
+   * @return the canonical ID, or UNREACHABLE
+   */
+  public static int canonicalId(int code) {
+    return code < 0 || code >= CODES ? UNREACHABLE : CODE_TO_ID[code];
+  }
+
+  /**
+   * Returns the number of canonical positions.
+   * @return the position count
+   */
+  public static int getPositionCount() {
+    return positionCount;
+  }
+
+  /**
+   * Returns what a position means for the game.
+   * @param code is a reachable position
+   * @return IN_PROGRESS, FIRST_PLAYER_WON, SECOND_PLAYER_WON or DRAW
+   */
+  public static int getStatus(int code) {
+    return STATUS[requireId(code)];
+  }
+
+  /**
+   * Returns the free cells of a position, where the next move can be made.
+   * @param code is a reachable position
+   * @return a 9-bit mask of the free cells, cell (x, y) being bit x * 3 + y
+   */
+  public static int getFreeCells(int code) {
+    int canonicalFree = FREE_CELLS[requireId(code)];
+    int[] symmetry = SYMMETRIES[CODE_TO_SYMMETRY[code]];
+    int free = 0;
+    for (int cell = 0; cell < CELLS; cell++) {
+      if ((canonicalFree & 1 << symmetry[cell]) != 0) {
+        free |= 1 << cell;
+      }
+    }
+    return free;
+  }
+
+  /**
+   * Returns the canonical ID of a position that must be reachable.
+   * @param code is a position
+   * @return the canonical ID
+   * @throws IllegalArgumentException if no game can reach the position
+   */
+  private static int requireId(int code) {
+    int id = canonicalId(code);
+    if (id == UNREACHABLE) {
+      throw new IllegalArgumentException("Position " + code + " cannot be reached");
+    }
+    return id;
+  }
+}
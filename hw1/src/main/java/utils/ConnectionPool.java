@@ -0,0 +1,87 @@
+package utils;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A fixed set of open connections to the game database that request
+ * threads borrow and give back, so no two threads ever share a connection
+ * and no request pays for opening one.
+ * @author kenyaplenty
+ *
+ */
+public class ConnectionPool {
+
+  private final List<Connection> connections = new ArrayList<>();
+
+  private final BlockingQueue<Connection> idle;
+
+  /**
+   * Opens all the connections of the pool to the game's database.
+   * @param size is the number of connections to open, at least two
+   */
+  public ConnectionPool(int size) {
+    this(GameDatabase.DATABASE_URL, size);
+  }
+
+  /**
+   * Opens all the connections of the pool to a database. A pool needs at
+   * least two connections: SqliteGameStore keeps one for its writer for as
+   * long as it is open, and reads would wait forever with none left.
+   * @param url is the JDBC URL of the database
+   * @param size is the number of connections to open, at least two
+   * @throws IllegalArgumentException if size is less than two
+   * @throws IllegalStateException if a connection cannot be opened
+   */
+  public ConnectionPool(String url, int size) {
+    if (size < 2) {
+      throw new IllegalArgumentException("A connection pool needs at least 2 connections, not "
+          + size);
+    }
+    this.idle = new ArrayBlockingQueue<>(size);
+    for (int i = 0; i < size; i++) {
+      Connection conn = GameDatabase.createConnection(url);
+      if (conn == null) {
+        close();
+        throw new IllegalStateException("Could not open a connection to " + url);
+      }
+      connections.add(conn);
+      idle.add(conn);
+    }
+  }
+
+  /**
+   * Takes a connection out of the pool, waiting for one to be given back if
+   * they are all in use. It must be given back with release().
+   * @return a Connection only the caller uses until it is released
+   */
+  public Connection borrow() {
+    try {
+      return idle.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a connection", e);
+    }
+  }
+
+  /**
+   * Gives a borrowed connection back to the pool.
+   * @param conn is the Connection returned by borrow()
+   */
+  public void release(Connection conn) {
+    idle.offer(conn);
+  }
+
+  /**
+   * Closes every connection of the pool.
+   */
+  public void close() {
+    for (Connection conn : connections) {
+      GameDatabase.closeConnection(conn);
+    }
+    idle.clear();
+  }
+}
@@ -2,13 +2,25 @@ package utils;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import models.BoardCheckpoint;
 import models.GameBoard;
 import models.Move;
 import models.Player;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
  
 
 /**
@@ -17,266 +29,515 @@ import models.Player;
  * tic tac toe game from the SQLite Database, ase.db. 
  * This information includes what moves were made
  * in what order as well as each player's id 
- * and symbol in the game. 
+ * and symbol in the game. Every row is keyed by the ID of its game, and 
+ * moves by their sequence number within the game. 
  * @author kenyataplenty
  *
  */
 public class GameDatabase { 
   
+  private static final Logger LOG = LoggerFactory.getLogger(GameDatabase.class);
+  
+  /** JDBC URL of the game's database. */
+  public static final String DATABASE_URL = "jdbc:sqlite:ase.db";
+  
+  /** How long a connection waits for another connection's lock before failing. */
+  private static final int BUSY_TIMEOUT_MILLIS = 5000;
+  
+  /** Version of the table layout created by this class, kept in PRAGMA user_version. */
+  public static final int SCHEMA_VERSION = 4;
+  
+  /** ID given to the single game of a database from before game IDs existed. */
+  private static final long LEGACY_GAME_ID = 1;
+  
   /**
    * Creates a new connection to the game's SQLite Database, ase.db.
    * @return a Connection object
    */
   public static Connection createConnection() {
+    return createConnection(DATABASE_URL); 
+  }
+  
+  /**
+   * Creates a new connection to a SQLite Database.
+   * @param url is the JDBC URL of the database
+   * @return a Connection object
+   */
+  public static Connection createConnection(String url) {
     Connection conn = null; 
     
     try {
       Class.forName("org.sqlite.JDBC"); 
-      conn = DriverManager.getConnection("jdbc:sqlite:ase.db"); 
+      // WAL lets readers on other connections run while the journal commits
+      SQLiteConfig config = new SQLiteConfig(); 
+      config.setJournalMode(SQLiteConfig.JournalMode.WAL); 
+      config.setBusyTimeout(BUSY_TIMEOUT_MILLIS); 
+      conn = DriverManager.getConnection(url, config.toProperties()); 
       
     } catch (Exception e) {
-      System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
+      LOG.error("createConnection failed", e);
     }
     
-    System.out.println("Opened database connection successfully"); 
+    LOG.debug("Opened database connection successfully");
     return conn;
   }
   
   /**
-   * Creates a Moves table that holds all the moves done
-   * during the game. 
-   * @param conn is a Connection Object 
-   * @return boolean indicating the success of the table creation
+   * Closes a connection and the statements cached for it.
+   * @param conn is the Connection to close
    */
-  public static boolean createMovesTable(Connection conn) {
-    Statement stmt = null; 
-    
+  public static void closeConnection(Connection conn) {
+    StatementCache.forget(conn); 
     try {
-      stmt = conn.createStatement(); 
-      String sql = "CREATE TABLE IF NOT EXISTS Moves " 
-                   + "(playerID INT NOT NULL, " 
-                   + "moveX INT NOT NULL, "
-                   + "moveY INT NOT NULL);"; 
-      stmt.executeUpdate(sql);
-    } catch (Exception e) {
-      System.out.println(e.getClass().getName() + ":" + e.getMessage());
-      return false; 
-    } finally {
-      if (stmt != null) {
-        try {
-          stmt.close();
-        } catch (SQLException e) {
-          System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-        } 
-      }
+      conn.close(); 
+    } catch (SQLException e) {
+      LOG.error("closeConnection failed", e);
     }
-    System.out.println("Table created successfully"); 
-    return true; 
   }
   
   /**
-   * Creates the Players table in the ase.db.
+   * Brings the tables of the database up to the current schema version.
+   * A database from before game IDs existed holds a single 3x3 game in
+   * Moves(playerID, moveX, moveY) and Players(playerID, symbol); its rows
+   * are moved into game 1, with the moves numbered in the order they were
+   * inserted. Moves without any player cannot be replayed, so they are
+   * dropped and no game 1 is made. Version 3 adds the Checkpoints table,
+   * and version 4 the bot column of Games.
+   * The schema version is kept in PRAGMA user_version.
    * @param conn is a Connection object
-   * @return boolean indicating whether or not the operation was successful
+   * @return boolean indicating whether or not the schema is up to date
    */
-  public static boolean createPlayersTable(Connection conn) {
-    Statement stmt = null; 
-    
+  public static boolean migrateSchema(Connection conn) {
     try {
-      stmt = conn.createStatement(); 
-      String sql = "CREATE TABLE IF NOT EXISTS Players"
-                   + "(playerID INT NOT NULL, "
-                   + "symbol CHAR(1) NOT NULL);"; 
-      stmt.executeUpdate(sql);  
+      int version = getSchemaVersion(conn);
+      if (version >= SCHEMA_VERSION) {
+        return true;
+      }
+      conn.setAutoCommit(false);
+      try (Statement stmt = conn.createStatement()) {
+        boolean legacyMoves = version == 0 && tableExists(conn, "Moves");
+        boolean legacyPlayers = version == 0 && tableExists(conn, "Players");
+        if (legacyMoves) {
+          stmt.executeUpdate("ALTER TABLE Moves RENAME TO LegacyMoves;");
+        }
+        if (legacyPlayers) {
+          stmt.executeUpdate("ALTER TABLE Players RENAME TO LegacyPlayers;");
+        }
+        createTables(stmt);
+        if (!columnExists(conn, "Games", "bot")) {
+          stmt.executeUpdate("ALTER TABLE Games ADD COLUMN bot INT NOT NULL DEFAULT 0;");
+        }
+        if (legacyPlayers) {
+          stmt.executeUpdate("INSERT INTO Games(gameID, size, winLength) "
+              + "SELECT " + LEGACY_GAME_ID + ", " + GameBoard.DEFAULT_SIZE + ", "
+              + GameBoard.DEFAULT_SIZE + " WHERE EXISTS (SELECT 1 FROM LegacyPlayers);");
+          // the legacy lookup kept the last row stored for a player
+          stmt.executeUpdate("INSERT OR REPLACE INTO Players(gameID, playerID, symbol) "
+              + "SELECT " + LEGACY_GAME_ID + ", playerID, symbol FROM LegacyPlayers "
+              + "ORDER BY rowid;");
+          stmt.executeUpdate("DROP TABLE LegacyPlayers;");
+        }
+        if (legacyMoves) {
+          // only game 1 made from the legacy players can replay the moves
+          stmt.executeUpdate("INSERT INTO Moves(gameID, seq, playerID, moveX, moveY) "
+              + "SELECT " + LEGACY_GAME_ID + ", rowid, playerID, moveX, moveY FROM LegacyMoves "
+              + "WHERE EXISTS (SELECT 1 FROM Games WHERE gameID = " + LEGACY_GAME_ID + ");");
+          stmt.executeUpdate("DROP TABLE LegacyMoves;");
+        }
+        stmt.executeUpdate("PRAGMA user_version = " + SCHEMA_VERSION + ";");
+      }
+      conn.commit();
     } catch (Exception e) {
-      System.out.println(e.getClass().getName() + ":" + e.getMessage());
-      return false; 
-    } finally {
-      if (stmt != null) {
-        try {
-          stmt.close();
-        } catch (SQLException e) {
-          System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-        } 
+      LOG.error("migrateSchema failed", e);
+      try {
+        conn.rollback();
+      } catch (SQLException e2) {
+        LOG.error("Rolling back the schema migration failed", e2);
       }
+      return false;
     }
-    System.out.println("Players table successfully created.");
-    return true; 
+    LOG.info("Schema migrated to version {}", SCHEMA_VERSION);
+    return true;
   }
-  
+
   /**
-   * Adds a successful move to the Moves table in the ase.db.
+   * Returns the schema version stored in the database, 0 for a database
+   * that predates versioning.
+   * @param conn is a Connection object
+   * @return the schema version
+   * @throws SQLException if the version cannot be read
+   */
+  public static int getSchemaVersion(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement();
+        ResultSet version = stmt.executeQuery("PRAGMA user_version;")) {
+      return version.next() ? version.getInt(1) : 0;
+    }
+  }
+
+  /**
+   * Checks whether a table exists in the database.
+   * @param conn is a Connection object
+   * @param tableName is the name of the table
+   * @return whether or not the table exists
+   * @throws SQLException if the lookup fails
+   */
+  private static boolean tableExists(Connection conn, String tableName) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(
+        "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?;")) {
+      stmt.setString(1, tableName);
+      try (ResultSet table = stmt.executeQuery()) {
+        return table.next();
+      }
+    }
+  }
+
+  /**
+   * Checks whether a table has a column.
+   * @param conn is a Connection object
+   * @param tableName is the name of the table
+   * @param columnName is the name of the column
+   * @return whether or not the column exists
+   * @throws SQLException if the lookup fails
+   */
+  private static boolean columnExists(Connection conn, String tableName, String columnName)
+      throws SQLException {
+    try (Statement stmt = conn.createStatement();
+        ResultSet columns = stmt.executeQuery("PRAGMA table_info(" + tableName + ");")) {
+      while (columns.next()) {
+        if (columnName.equalsIgnoreCase(columns.getString("name"))) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Creates the Games, Players, Moves and Checkpoints tables. All but Games 
+   * are stored in the order of their primary key, so all the rows of one game
+   * sit together and are read with a range scan that never leaves the key.
+   * @param stmt is the Statement to run the SQL with
+   * @throws SQLException if a table cannot be created
+   */
+  private static void createTables(Statement stmt) throws SQLException {
+    stmt.executeUpdate("CREATE TABLE IF NOT EXISTS Games "
+        + "(gameID INTEGER PRIMARY KEY, "
+        + "size INT NOT NULL, "
+        + "winLength INT NOT NULL, "
+        + "bot INT NOT NULL DEFAULT 0);");
+    stmt.executeUpdate("CREATE TABLE IF NOT EXISTS Players "
+        + "(gameID INT NOT NULL, "
+        + "playerID INT NOT NULL, "
+        + "symbol CHAR(1) NOT NULL, "
+        + "PRIMARY KEY (gameID, playerID)) WITHOUT ROWID;");
+    stmt.executeUpdate("CREATE TABLE IF NOT EXISTS Moves "
+        + "(gameID INT NOT NULL, "
+        + "seq INT NOT NULL, "
+        + "playerID INT NOT NULL, "
+        + "moveX INT NOT NULL, "
+        + "moveY INT NOT NULL, "
+        + "PRIMARY KEY (gameID, seq)) WITHOUT ROWID;");
+    stmt.executeUpdate("CREATE TABLE IF NOT EXISTS Checkpoints "
+        + "(gameID INT NOT NULL, "
+        + "seq INT NOT NULL, "
+        + "cells TEXT NOT NULL, "
+        + "turn INT NOT NULL, "
+        + "winner INT NOT NULL, "
+        + "isDraw INT NOT NULL, "
+        + "gameStarted INT NOT NULL, "
+        + "PRIMARY KEY (gameID, seq)) WITHOUT ROWID;");
+  }
+
+  /**
+   * Creates the Games, Players, Moves and Checkpoints tables in the ase.db.
+   * @param conn is a Connection object
+   * @return boolean indicating the success of the table creation
+   */
+  public static boolean createTables(Connection conn) {
+    try (Statement stmt = conn.createStatement()) {
+      createTables(stmt);
+    } catch (Exception e) {
+      LOG.error("createTables failed", e);
+      return false;
+    }
+    LOG.debug("Tables created successfully");
+    return true;
+  }
+
+  /**
+   * Inserts a game into the Games table without committing, so that
+   * several writes can share one transaction.
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game
+   * @param size is the number of rows and columns on the board
+   * @param winLength is the number of marks in a row needed to win
+   * @throws SQLException if the insert fails
+   */
+  public static void insertGame(Connection conn, long gameId, int size, int winLength)
+      throws SQLException {
+    PreparedStatement stmt = StatementCache.prepare(conn,
+        "INSERT OR REPLACE INTO Games(gameID, size, winLength) VALUES (?, ?, ?);");
+    stmt.setLong(1, gameId);
+    stmt.setInt(2, size);
+    stmt.setInt(3, winLength);
+    stmt.executeUpdate();
+  }
+
+  /**
+   * Marks a game as played against the computer without committing.
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game
+   * @throws SQLException if the update fails
+   */
+  public static void updateBotOpponent(Connection conn, long gameId) throws SQLException {
+    PreparedStatement stmt = StatementCache.prepare(conn,
+        "UPDATE Games SET bot = 1 WHERE gameID = ?;");
+    stmt.setLong(1, gameId);
+    stmt.executeUpdate();
+  }
+
+  /**
+   * Deletes a game and its players, moves and checkpoints without committing.
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game to delete
+   * @throws SQLException if a delete fails
+   */
+  public static void deleteGame(Connection conn, long gameId) throws SQLException {
+    for (String table : new String[] {"Checkpoints", "Moves", "Players", "Games"}) {
+      PreparedStatement stmt = StatementCache.prepare(conn,
+          "DELETE FROM " + table + " WHERE gameID = ?;");
+      stmt.setLong(1, gameId);
+      stmt.executeUpdate();
+    }
+  }
+
+  /**
+   * Inserts a move into the Moves table without committing, so that
+   * several writes can share one transaction.
    * @param conn is a Connection object that allows us to access the database
+   * @param gameId is the ID of the game the move was made in
+   * @param seq is the number of the move within its game
    * @param move is a Move object which will provide the information to update the database with
-   * @return Boolean that indicates whether or not the move was successfully added
+   * @throws SQLException if the insert fails
    */
-  public static boolean addMoveData(Connection conn, Move move) {
-    Statement stmt = null; 
-    
+  public static void insertMove(Connection conn, long gameId, long seq, Move move)
+      throws SQLException {
+    PreparedStatement stmt = StatementCache.prepare(conn,
+        "INSERT INTO Moves(gameID, seq, playerID, moveX, moveY) VALUES (?, ?, ?, ?, ?);");
+    stmt.setLong(1, gameId);
+    stmt.setLong(2, seq);
+    stmt.setInt(3, move.getPlayer().getId());
+    stmt.setInt(4, move.getMoveX());
+    stmt.setInt(5, move.getMoveY());
+    stmt.executeUpdate();
+  }
+
+  /**
+   * Stores a checkpoint of a game without committing, and deletes the older
+   * checkpoints of the game, which a restore no longer needs.
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game the checkpoint was taken of
+   * @param checkpoint is the BoardCheckpoint to store
+   * @throws SQLException if the insert fails
+   */
+  public static void insertCheckpoint(Connection conn, long gameId, BoardCheckpoint checkpoint)
+      throws SQLException {
+    PreparedStatement stmt = StatementCache.prepare(conn,
+        "INSERT OR REPLACE INTO Checkpoints(gameID, seq, cells, turn, winner, isDraw, "
+        + "gameStarted) VALUES (?, ?, ?, ?, ?, ?, ?);");
+    stmt.setLong(1, gameId);
+    stmt.setLong(2, checkpoint.getSeq());
+    stmt.setString(3, checkpoint.getCells());
+    stmt.setInt(4, checkpoint.getTurn());
+    stmt.setInt(5, checkpoint.getWinner());
+    stmt.setBoolean(6, checkpoint.getIsDraw());
+    stmt.setBoolean(7, checkpoint.getGameStarted());
+    stmt.executeUpdate();
+
+    PreparedStatement prune = StatementCache.prepare(conn,
+        "DELETE FROM Checkpoints WHERE gameID = ? AND seq < ?;");
+    prune.setLong(1, gameId);
+    prune.setLong(2, checkpoint.getSeq());
+    prune.executeUpdate();
+  }
+
+  /**
+   * Inserts a player into the Players table without committing, so that
+   * several writes can share one transaction. A player that joins again
+   * replaces the stored one.
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game the player is in
+   * @param player is a Player object representing the Player that you are adding to the table
+   * @throws SQLException if the insert fails
+   */
+  public static void insertPlayer(Connection conn, long gameId, Player player)
+      throws SQLException {
+    PreparedStatement stmt = StatementCache.prepare(conn,
+        "INSERT OR REPLACE INTO Players(gameID, playerID, symbol) VALUES (?, ?, ?);");
+    stmt.setLong(1, gameId);
+    stmt.setInt(2, player.getId());
+    stmt.setString(3, String.valueOf(player.getType()));
+    stmt.executeUpdate();
+  }
+
+  /**
+   * Returns the IDs of all the stored games in ascending order.
+   * @param conn is a Connection object
+   * @return List of game IDs
+   */
+  public static List<Long> retrieveGameIds(Connection conn) {
+    List<Long> gameIds = new ArrayList<>();
     try {
-      conn.setAutoCommit(false);
-      System.out.println("Opened database successfully.");
-      
-      stmt = conn.createStatement(); 
-      String sql = "INSERT INTO Moves(playerID, moveX, moveY) "
-                   + "VALUES (" + move.getPlayer().getId() + ", " 
-                   + move.getMoveX() + ", " 
-                   + move.getMoveY() + " );";
-      stmt.executeUpdate(sql); 
-      conn.commit(); 
-      
-    } catch (Exception e) {
-      System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-      return false; 
-    } finally {
-      if (stmt != null) {
-        try {
-          stmt.close();
-        } catch (SQLException e) {
-          System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-        } 
+      PreparedStatement stmt = StatementCache.prepare(conn,
+          "SELECT gameID from Games ORDER BY gameID;");
+      try (ResultSet gameData = stmt.executeQuery()) {
+        while (gameData.next()) {
+          gameIds.add(gameData.getLong("gameID"));
+        }
       }
+    } catch (Exception e) {
+      LOG.error("retrieveGameIds failed", e);
     }
-    System.out.println("Move successfully added to the table."); 
-    return true; 
+    return gameIds;
   }
-  
+
   /**
-   * Adds a player to the Players table in the ase.db.
-   * @param conn is a Connection object 
-   * @param player is a Player object representing the Player that you are adding to the table 
-   * @return Boolean indicating whether or not the addition was successful
+   * Returns an empty board with the ID and shape of a stored game, and
+   * whether it is played against the computer.
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game to look up
+   * @return GameBoard with no players or moves, or null if there is no such game
    */
-  public static boolean addPlayer(Connection conn, Player player) {
-    Statement stmt = null; 
+  public static GameBoard retrieveGame(Connection conn, long gameId) {
+    GameBoard gameBoard = null;
     try {
-      conn.setAutoCommit(false);
-      stmt = conn.createStatement(); 
-      String sql = "INSERT INTO Players( playerID, symbol) "
-                   + "VALUES (" + player.getId() + ", " 
-                   + "\'" + player.getType() + "\'" + ");"; 
-      stmt.executeUpdate(sql); 
-      conn.commit(); 
-    } catch (Exception e) {
-      System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-      return false; 
-    } finally {
-      if (stmt != null) {
-        try {
-          stmt.close();
-        } catch (SQLException e) {
-          System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-        } 
+      PreparedStatement stmt = StatementCache.prepare(conn,
+          "SELECT size, winLength, bot from Games where gameID = ?;");
+      stmt.setLong(1, gameId);
+      try (ResultSet gameData = stmt.executeQuery()) {
+        if (gameData.next()) {
+          gameBoard = new GameBoard(gameData.getInt("size"), gameData.getInt("winLength"));
+          gameBoard.setGameId(gameId);
+          gameBoard.setBotOpponent(gameData.getBoolean("bot"));
+        }
       }
+    } catch (Exception e) {
+      LOG.error("retrieveGame failed", e);
+      return null;
     }
-    System.out.println("Successfully added Player"); 
-    return true; 
+    return gameBoard;
   }
-  
+
   /**
-   * Returns the id and symbol for Player1.
-   * @param conn is a Connection object 
-   * @return Player object that contains all the information about Player 1
+   * Returns the newest checkpoint stored for a game.
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game
+   * @return the newest BoardCheckpoint, or null if the game has none
    */
-  public static Player retrievePlayer1(Connection conn) {
-    Statement stmt = null; 
-    Player savedPlayer = null; 
+  public static BoardCheckpoint retrieveLatestCheckpoint(Connection conn, long gameId) {
+    BoardCheckpoint checkpoint = null;
     try {
-      stmt = conn.createStatement(); 
-      String sql = "SELECT * from Players where playerID = 1;";
-      ResultSet playerData = stmt.executeQuery(sql); 
-      try {
-        while (playerData.next()) {
-          savedPlayer = new Player(playerData.getString("symbol").charAt(0),
-              playerData.getInt("playerID"));
-        }
-      } catch (Exception e) {
-        System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-      } finally {
-        if (playerData != null) {
-          try {
-            playerData.close();
-          } catch (Exception e2) {
-            System.out.println(e2.getClass().getName() + ":" + e2.getMessage()); 
-          }
+      PreparedStatement stmt = StatementCache.prepare(conn,
+          "SELECT seq, cells, turn, winner, isDraw, gameStarted from Checkpoints "
+          + "where gameID = ? ORDER BY seq DESC LIMIT 1;");
+      stmt.setLong(1, gameId);
+      try (ResultSet checkpointData = stmt.executeQuery()) {
+        if (checkpointData.next()) {
+          checkpoint = new BoardCheckpoint(checkpointData.getLong("seq"),
+              checkpointData.getString("cells"), checkpointData.getInt("turn"),
+              checkpointData.getInt("winner"), checkpointData.getBoolean("isDraw"),
+              checkpointData.getBoolean("gameStarted"));
         }
       }
     } catch (Exception e) {
-      System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-      return null; 
-    } finally {
-      if (stmt != null) {
-        try {
-          stmt.close();
-        } catch (SQLException e) {
-          System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-        } 
-      } 
+      LOG.error("retrieveLatestCheckpoint failed", e);
+      return null;
     }
-    System.out.println("Successfully retrieved player");
-    return savedPlayer; 
+    return checkpoint;
   }
-  
+
+  /**
+   * Returns the id and symbol for Player1.
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game the player is in
+   * @return Player object that contains all the information about Player 1
+   */
+  public static Player retrievePlayer1(Connection conn, long gameId) {
+    Player savedPlayer = retrievePlayer(conn, gameId, 1);
+    LOG.debug("Successfully retrieved player");
+    return savedPlayer;
+  }
+
   /**
    * Returns the id and symbol for Player 2.
-   * @param conn is a Connection object 
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game the player is in
    * @return Player object that contains all the information about Player 2
    */
-  public static Player retrievePlayer2(Connection conn) {
-    Statement stmt = null; 
-    Player savedPlayer = null; 
+  public static Player retrievePlayer2(Connection conn, long gameId) {
+    Player savedPlayer = retrievePlayer(conn, gameId, 2);
+    LOG.debug("Successfully retrieved Player 2");
+    return savedPlayer;
+  }
+
+  /**
+   * Returns the id and symbol for a player.
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game the player is in
+   * @param playerId is the id of the player to look up
+   * @return Player object that contains all the information about the player, or null
+   */
+  private static Player retrievePlayer(Connection conn, long gameId, int playerId) {
+    Player savedPlayer = null;
     try {
-      stmt = conn.createStatement(); 
-      String sql = "SELECT * from Players where playerID = 2;";
-      ResultSet playerData = stmt.executeQuery(sql); 
-      try {
+      PreparedStatement stmt = StatementCache.prepare(conn,
+          "SELECT playerID, symbol from Players where gameID = ? and playerID = ?;");
+      stmt.setLong(1, gameId);
+      stmt.setInt(2, playerId);
+      try (ResultSet playerData = stmt.executeQuery()) {
         while (playerData.next()) {
           savedPlayer = new Player(playerData.getString("symbol").charAt(0),
               playerData.getInt("playerID"));
         }
-      } catch (Exception e) {
-        System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-      } finally {
-        if (playerData != null) {
-          try {
-            playerData.close();
-          } catch (Exception e2) {
-            System.out.println(e2.getClass().getName() + ":" + e2.getMessage()); 
-          }
-        }
       }
     } catch (Exception e) {
-      System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-      return null; 
-    } finally {
-      if (stmt != null) {
-        try {
-          stmt.close();
-        } catch (SQLException e) {
-          System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-        } 
-      } 
+      LOG.error("retrievePlayer failed", e);
+      return null;
     }
-    System.out.println("Successfully retrieved Player 2"); 
-    return savedPlayer; 
+    return savedPlayer;
   }
-  
+
   /**
-   * Retrieves all the moves that have been made during the tic tac toe game so far.
-   * If it is a valid move, then it is added to the valid moves array that will be
-   * used to reconstruct the game board with. 
+   * Retrieves all the moves that have been made during a tic tac toe game so far,
+   * in the order they were made. They are replayed through isValidMove to 
+   * reconstruct the game board with. 
    * @param conn is a Connection object 
    * @param gameBoard is the GameBoard object that you are retrieving moves for
-   * @return ArrayList containing all the valid played moves
+   * @return ArrayList containing all the played moves
    */
   public static ArrayList<Move> retrieveMoves(Connection conn, GameBoard gameBoard) {
-    Statement stmt = null;
+    return retrieveMoves(conn, gameBoard, 0); 
+  }
+  
+  /**
+   * Retrieves the moves of a tic tac toe game that were made after a given move,
+   * in the order they were made.
+   * @param conn is a Connection object 
+   * @param gameBoard is the GameBoard object that you are retrieving moves for
+   * @param afterSeq is the sequence number of the last move not to retrieve
+   * @return ArrayList containing the played moves after afterSeq
+   */
+  public static ArrayList<Move> retrieveMoves(Connection conn, GameBoard gameBoard, 
+      long afterSeq) {
     ArrayList<Move> savedMoves = new ArrayList<Move>(); 
     
     try {
-      stmt = conn.createStatement();
-      String sql = "SELECT * from Moves"; 
-      ResultSet moveData = stmt.executeQuery(sql); 
+      PreparedStatement stmt = StatementCache.prepare(conn, 
+          "SELECT playerID, moveX, moveY from Moves where gameID = ? and seq > ? "
+          + "ORDER BY seq;"); 
+      stmt.setLong(1, gameBoard.getGameId()); 
+      stmt.setLong(2, afterSeq); 
+      ResultSet moveData = stmt.executeQuery(); 
       try {
         while (moveData.next()) {
           Move currentRestoredMove = null; 
@@ -294,120 +555,242 @@ public class GameDatabase {
         }
         
       } catch (Exception e) {
-        System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
+        LOG.error("retrieveMoves failed", e);
       } finally {
         if (moveData != null) {
           try {
             moveData.close(); 
           } catch (Exception e2) {
-            System.out.println(e2.getClass().getName() + ":" + e2.getMessage()); 
+            LOG.error("Closing the move cursor failed", e2);
           }
         }
       }
     } catch (Exception e) {
-      System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
+      LOG.error("retrieveMoves failed", e);
       return null; 
-    } finally {
-      if (stmt != null) {
-        try {
-          stmt.close(); 
-        } catch (Exception e) {
-          System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-        }
-      }
     }
-    System.out.println("Successfully retrieved all of the moves from the table"); 
+    LOG.debug("Successfully retrieved all of the moves from the table");
     return savedMoves; 
   }
- 
+
   /**
-   * Removes the specified table from the database. 
-   * @param conn is a Connection object that allows us to access the database
-   * @param tableName is a String representing the table to be dropped
-   * @return Boolean indicating whether or not the sql query was successful
+   * Returns the sequence number of the last move stored for a game.
+   * @param conn is a Connection object
+   * @param gameId is the ID of the game
+   * @return the last sequence number, or 0 if the game has no moves
    */
-  public static boolean dropTable(Connection conn, String tableName) {
-    Statement stmt = null; 
+  public static long retrieveLastMoveSeq(Connection conn, long gameId) {
     try {
-      stmt = conn.createStatement(); 
-      String sql =  "DROP Table IF EXISTS " + tableName;  
-      stmt.execute(sql); 
-      conn.commit(); 
-    } catch (Exception e) {
-      System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
-      return false; 
-    } finally {
-      if (stmt != null) {
-        try {
-          stmt.close();
-        } catch (Exception e2) {
-          System.out.println(e2.getClass().getName() + ":" + e2.getMessage()); 
-        }
+      PreparedStatement stmt = StatementCache.prepare(conn,
+          "SELECT MAX(seq) from Moves where gameID = ?;");
+      stmt.setLong(1, gameId);
+      try (ResultSet seqData = stmt.executeQuery()) {
+        return seqData.next() ? seqData.getLong(1) : 0;
       }
+    } catch (Exception e) {
+      LOG.error("retrieveLastMoveSeq failed", e);
+      return 0;
     }
-    System.out.println("Table successfully dropped"); 
-    return true; 
   }
   
   /**
-   * Restores a GameBoard object after there has been a "crash."
+   * Restores a GameBoard object after there has been a "crash." The board 
+   * starts from the newest checkpoint of the game, so only the moves made 
+   * after it are replayed.
    * @param conn is a Connection Object 
-   * @param gameBoard is a GameBoard object that needs to be restored 
-   * @return GameBoard that has been fully restored
+   * @param gameId is the ID of the game that needs to be restored 
+   * @return GameBoard that has been fully restored, or null if the game is not stored
    */
-  public static GameBoard restoreGameBoard(Connection conn, GameBoard gameBoard) {
+  public static GameBoard restoreGameBoard(Connection conn, long gameId) {
+    GameBoard gameBoard = retrieveGame(conn, gameId); 
+    if (gameBoard == null) {
+      return null; 
+    }
     try {
-      Player savedPlayer1 = retrievePlayer1(conn); 
-      gameBoard = new GameBoard(); 
+      Player savedPlayer1 = retrievePlayer1(conn, gameId); 
       if (savedPlayer1 != null) {
         gameBoard.setP1(savedPlayer1);
       }
       
-      Player savedPlayer2 = retrievePlayer2(conn); 
+      Player savedPlayer2 = retrievePlayer2(conn, gameId); 
       if (savedPlayer2 != null) {
         gameBoard.setP2(savedPlayer2); 
         gameBoard.setGameStarted(true); 
       }
       
+      long checkpointSeq = 0; 
+      BoardCheckpoint checkpoint = retrieveLatestCheckpoint(conn, gameId); 
+      if (checkpoint != null) {
+        gameBoard.restoreCheckpoint(checkpoint); 
+        checkpointSeq = checkpoint.getSeq(); 
+      }
+      
       if (gameBoard.getP1() != null && gameBoard.getP2() != null) {
-        ArrayList<Move> storedMoves = retrieveMoves(conn, gameBoard); 
-        
-        if (storedMoves.size()  > 0) {
-          for (Move currentMove: storedMoves) { 
-            if (gameBoard.isValidMove(currentMove)) {
-              gameBoard.addMoveToBoardAndSwitchesTurns(currentMove);
-              
-              if (gameBoard.playerWonGame(savedPlayer1)) {
-                gameBoard.endsGameAndSetsWinner(savedPlayer1);
-              }
-              
-              if (gameBoard.playerWonGame(savedPlayer2)) {
-                gameBoard.endsGameAndSetsWinner(savedPlayer2);
-              }
-              
-            } else if (gameBoard.isGameDraw()) {
-              gameBoard.setGameDraw();
-            }
-          }
-        }
-        
+        ArrayList<Move> storedMoves = retrieveMoves(conn, gameBoard, checkpointSeq); 
+        replayMoves(gameBoard, storedMoves); 
       }
+      gameBoard.setLastMoveSeq(Math.max(checkpointSeq, retrieveLastMoveSeq(conn, gameId))); 
       
     } catch (Exception e) {
-      System.out.println(e.getClass().getName() + ":" + e.getMessage()); 
+      LOG.error("restoreGameBoard failed", e);
     }
     return gameBoard; 
   }
   
   /**
-   * Deletes all the tables and creates them fresh. 
+   * Restores every stored game at once. Games, players and checkpoints are 
+   * read with one query each, and all the moves with one cursor in 
+   * (gameID, seq) order. As soon as the cursor has passed the moves of a 
+   * game, the game is rebuilt on the pool while the cursor reads on.
    * @param conn is a Connection object
+   * @param pool is the ForkJoinPool the boards are rebuilt on
+   * @return List of the restored GameBoards in ascending gameID order
+   */
+  public static List<GameBoard> restoreAllGameBoards(Connection conn, ForkJoinPool pool) {
+    Map<Long, GameBoard> gameBoards = new LinkedHashMap<>(); 
+    Map<Long, BoardCheckpoint> checkpoints = new HashMap<>(); 
+    Map<Long, ForkJoinTask<GameBoard>> rebuilds = new HashMap<>(); 
+    try (Statement stmt = conn.createStatement()) {
+      try (ResultSet gameData = stmt.executeQuery(
+          "SELECT gameID, size, winLength, bot from Games ORDER BY gameID;")) {
+        while (gameData.next()) {
+          GameBoard gameBoard = new GameBoard(gameData.getInt("size"), 
+              gameData.getInt("winLength")); 
+          gameBoard.setGameId(gameData.getLong("gameID")); 
+          gameBoard.setBotOpponent(gameData.getBoolean("bot")); 
+          gameBoards.put(gameBoard.getGameId(), gameBoard); 
+        }
+      }
+      
+      try (ResultSet playerData = stmt.executeQuery(
+          "SELECT gameID, playerID, symbol from Players;")) {
+        while (playerData.next()) {
+          GameBoard gameBoard = gameBoards.get(playerData.getLong("gameID")); 
+          if (gameBoard == null) {
+            continue; 
+          }
+          Player savedPlayer = new Player(playerData.getString("symbol").charAt(0), 
+              playerData.getInt("playerID")); 
+          if (savedPlayer.getId() == 1) {
+            gameBoard.setP1(savedPlayer); 
+          } else if (savedPlayer.getId() == 2) {
+            gameBoard.setP2(savedPlayer); 
+            gameBoard.setGameStarted(true); 
+          }
+        }
+      }
+      
+      try (ResultSet checkpointData = stmt.executeQuery(
+          "SELECT gameID, seq, cells, turn, winner, isDraw, gameStarted from Checkpoints;")) {
+        while (checkpointData.next()) {
+          BoardCheckpoint checkpoint = new BoardCheckpoint(checkpointData.getLong("seq"), 
+              checkpointData.getString("cells"), checkpointData.getInt("turn"), 
+              checkpointData.getInt("winner"), checkpointData.getBoolean("isDraw"), 
+              checkpointData.getBoolean("gameStarted")); 
+          checkpoints.merge(checkpointData.getLong("gameID"), checkpoint, 
+              (a, b) -> a.getSeq() >= b.getSeq() ? a : b); 
+        }
+      }
+      
+      try (ResultSet moveData = stmt.executeQuery(
+          "SELECT gameID, seq, playerID, moveX, moveY from Moves ORDER BY gameID, seq;")) {
+        GameBoard gameBoard = null; 
+        List<Move> tail = new ArrayList<>(); 
+        long lastSeq = 0; 
+        while (moveData.next()) {
+          long gameId = moveData.getLong("gameID"); 
+          if (gameBoard == null || gameBoard.getGameId() != gameId) {
+            if (gameBoard != null) {
+              rebuilds.put(gameBoard.getGameId(), pool.submit(rebuildTask(gameBoard, 
+                  checkpoints.get(gameBoard.getGameId()), tail, lastSeq))); 
+            }
+            gameBoard = gameBoards.get(gameId); 
+            tail = new ArrayList<>(); 
+            lastSeq = 0; 
+          }
+          if (gameBoard == null) {
+            // moves of a game that is no longer stored
+            continue; 
+          }
+          lastSeq = moveData.getLong("seq"); 
+          BoardCheckpoint checkpoint = checkpoints.get(gameId); 
+          if (checkpoint != null && lastSeq <= checkpoint.getSeq()) {
+            continue; 
+          }
+          Player player = moveData.getInt("playerID") == 1 
+              ? gameBoard.getP1() : gameBoard.getP2(); 
+          tail.add(new Move(player, moveData.getInt("moveX"), moveData.getInt("moveY"))); 
+        }
+        if (gameBoard != null) {
+          rebuilds.put(gameBoard.getGameId(), pool.submit(rebuildTask(gameBoard, 
+              checkpoints.get(gameBoard.getGameId()), tail, lastSeq))); 
+        }
+      }
+    } catch (Exception e) {
+      LOG.error("restoreAllGameBoards failed", e);
+    }
+    
+    List<GameBoard> restored = new ArrayList<>(gameBoards.size()); 
+    for (GameBoard gameBoard : gameBoards.values()) {
+      ForkJoinTask<GameBoard> rebuild = rebuilds.get(gameBoard.getGameId()); 
+      if (rebuild == null) {
+        rebuild = pool.submit(rebuildTask(gameBoard, 
+            checkpoints.get(gameBoard.getGameId()), new ArrayList<>(), 0)); 
+      }
+      restored.add(rebuild.join()); 
+    }
+    return restored; 
+  }
+  
+  /**
+   * Returns a task that brings a board with its players set up to date.
+   * @param gameBoard is the GameBoard to rebuild
+   * @param checkpoint is the newest BoardCheckpoint of the game, or null
+   * @param tail is the List of moves made after the checkpoint
+   * @param lastSeq is the sequence number of the last stored move, or 0
+   * @return Callable returning the rebuilt GameBoard
    */
-  public static void resetTables(Connection conn) {
-    dropTable(conn, "Moves"); 
-    dropTable(conn, "Players"); 
-    createPlayersTable(conn); 
-    createMovesTable(conn); 
+  private static Callable<GameBoard> rebuildTask(GameBoard gameBoard, 
+      BoardCheckpoint checkpoint, List<Move> tail, long lastSeq) {
+    return () -> {
+      long checkpointSeq = 0; 
+      if (checkpoint != null) {
+        gameBoard.restoreCheckpoint(checkpoint); 
+        checkpointSeq = checkpoint.getSeq(); 
+      }
+      if (gameBoard.getP1() != null && gameBoard.getP2() != null) {
+        replayMoves(gameBoard, tail); 
+      }
+      gameBoard.setLastMoveSeq(Math.max(checkpointSeq, lastSeq)); 
+      return gameBoard; 
+    };
+  }
+  
+  /**
+   * Applies stored moves to a board in the order they were made, the way 
+   * they were applied when they were made.
+   * @param gameBoard is a GameBoard with both players set
+   * @param storedMoves is the List of moves to apply
+   */
+  public static void replayMoves(GameBoard gameBoard, List<Move> storedMoves) {
+    Player savedPlayer1 = gameBoard.getP1(); 
+    Player savedPlayer2 = gameBoard.getP2(); 
+    for (Move currentMove: storedMoves) { 
+      if (gameBoard.isValidMove(currentMove)) {
+        gameBoard.addMoveToBoardAndSwitchesTurns(currentMove);
+        
+        if (gameBoard.playerWonGame(savedPlayer1)) {
+          gameBoard.endsGameAndSetsWinner(savedPlayer1);
+        }
+        
+        if (gameBoard.playerWonGame(savedPlayer2)) {
+          gameBoard.endsGameAndSetsWinner(savedPlayer2);
+        }
+        
+      } else if (gameBoard.isGameDraw()) {
+        gameBoard.setGameDraw();
+      }
+    }
   }
 
 }
@@ -0,0 +1,106 @@
+package utils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import models.BoardCheckpoint;
+import models.GameBoard;
+import models.Move;
+import models.Player;
+
+/**
+ * Where games, players and moves are kept between restarts. The writes are
+ * made by the MoveJournal's writer thread only, in the order they were
+ * queued, and are durable once commit() returns. The reads can be made
+ * from any thread.
+ * @author kenyaplenty
+ *
+ */
+public interface GameStore {
+
+  /**
+   * Stores a new game.
+   * @param gameId is the ID of the game
+   * @param size is the number of rows and columns on the board
+   * @param winLength is the number of marks in a row needed to win
+   * @throws IOException if the write fails
+   */
+  void addGame(long gameId, int size, int winLength) throws IOException;
+
+  /**
+   * Stores a player of a game, replacing a stored player with the same id.
+   * @param gameId is the ID of the game the player is in
+   * @param player is the Player to store
+   * @throws IOException if the write fails
+   */
+  void addPlayer(long gameId, Player player) throws IOException;
+
+  /**
+   * Marks a stored game as played against the computer.
+   * @param gameId is the ID of the game
+   * @throws IOException if the write fails
+   */
+  void addBotOpponent(long gameId) throws IOException;
+
+  /**
+   * Stores a move of a game.
+   * @param gameId is the ID of the game the move was made in
+   * @param seq is the number of the move within its game
+   * @param move is the Move to store
+   * @throws IOException if the write fails
+   */
+  void addMove(long gameId, long seq, Move move) throws IOException;
+
+  /**
+   * Stores a checkpoint of a game. A store may drop checkpoints and replay
+   * the whole game on restore instead.
+   * @param gameId is the ID of the game the checkpoint was taken of
+   * @param checkpoint is the BoardCheckpoint to store
+   * @throws IOException if the write fails
+   */
+  void addCheckpoint(long gameId, BoardCheckpoint checkpoint) throws IOException;
+
+  /**
+   * Deletes a game with everything stored for it.
+   * @param gameId is the ID of the game to delete
+   * @throws IOException if the write fails
+   */
+  void deleteGame(long gameId) throws IOException;
+
+  /**
+   * Makes every write since the last commit durable.
+   * @throws IOException if the writes cannot be made durable
+   */
+  void commit() throws IOException;
+
+  /**
+   * Undoes every write since the last commit, after a commit has failed.
+   * @throws IOException if the writes cannot be undone
+   */
+  void rollback() throws IOException;
+
+  /**
+   * Returns the IDs of all the stored games in ascending order.
+   * @return List of game IDs
+   */
+  List<Long> retrieveGameIds();
+
+  /**
+   * Rebuilds a stored game.
+   * @param gameId is the ID of the game
+   * @return the restored GameBoard, or null if the game is not stored
+   */
+  GameBoard restoreGameBoard(long gameId);
+
+  /**
+   * Rebuilds every stored game at once, in parallel on a pool.
+   * @param pool is the ForkJoinPool the games are rebuilt on
+   * @return List of the restored GameBoards in ascending game ID order
+   */
+  List<GameBoard> restoreAllGameBoards(ForkJoinPool pool);
+
+  /**
+   * Releases the files or connections of the store.
+   */
+  void close();
+}
@@ -0,0 +1,289 @@
+package utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters, gauges and latency histograms shown at /metrics in the
+ * Prometheus text format. Recording is lock-free: a counter is a LongAdder
+ * and a histogram is a LongAdder per bucket, so threads recording at the
+ * same time do not contend. Callers on a hot path look a metric up once and
+ * keep it; the lookup itself is a lock-free map read once the metric exists.
+ * @author kenyaplenty
+ *
+ */
+public final class Metrics {
+
+  /** Upper bounds of the latency histogram buckets, in seconds. */
+  private static final double[] BUCKETS = {
+    0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5
+  };
+
+  /** The same bounds in nanoseconds, for comparing without converting each latency. */
+  private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+
+  static {
+    for (int i = 0; i < BUCKETS.length; i++) {
+      BUCKET_NANOS[i] = (long) (BUCKETS[i] * TimeUnit.SECONDS.toNanos(1));
+    }
+  }
+
+  /** Every metric family by name, sorted so the output is stable. */
+  private static final ConcurrentMap<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+
+  private Metrics() {
+  }
+
+  /**
+   * A count that only goes up.
+   */
+  public static final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Adds one to the count.
+     */
+    public void increment() {
+      count.increment();
+    }
+
+    /**
+     * Returns the count.
+     * @return the count
+     */
+    public long get() {
+      return count.sum();
+    }
+  }
+
+  /**
+   * Latencies counted into fixed buckets, with their sum.
+   */
+  public static final class Histogram {
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram() {
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    /**
+     * Records a latency.
+     * @param nanos is the latency in nanoseconds
+     */
+    public void observeNanos(long nanos) {
+      int bucket = 0;
+      while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket]) {
+        bucket++;
+      }
+      buckets[bucket].increment();
+      sumNanos.add(nanos);
+    }
+
+    /**
+     * Records the time since a start time.
+     * @param startNanos is the System.nanoTime() when the timed work started
+     */
+    public void observeSince(long startNanos) {
+      observeNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     * @return the count
+     */
+    public long getCount() {
+      long count = 0;
+      for (LongAdder bucket : buckets) {
+        count += bucket.sum();
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Metrics sharing a name and type, one per set of labels.
+   */
+  private static final class Family {
+
+    private final String type;
+
+    private final String help;
+
+    private final ConcurrentMap<String, Object> children = new ConcurrentSkipListMap<>();
+
+    Family(String type, String help) {
+      this.type = type;
+      this.help = help;
+    }
+  }
+
+  /**
+   * Returns the counter with a name and labels, creating it the first time.
+   * @param name is the metric name, ending in _total
+   * @param help is the description shown with the metric
+   * @param labels are label names and values, in turn
+   * @return the Counter
+   */
+  public static Counter counter(String name, String help, String... labels) {
+    return (Counter) family(name, "counter", help).children
+        .computeIfAbsent(labelString(labels), key -> new Counter());
+  }
+
+  /**
+   * Registers a counter kept elsewhere and read when the metrics are shown.
+   * Registering it again replaces the old one, so a restarted server reads
+   * its new state.
+   * @param name is the metric name, ending in _total
+   * @param help is the description shown with the metric
+   * @param value returns the current count
+   * @param labels are label names and values, in turn
+   */
+  public static void counter(String name, String help, LongSupplier value, String... labels) {
+    family(name, "counter", help).children.put(labelString(labels), value);
+  }
+
+  /**
+   * Returns the latency histogram with a name and labels, creating it the first time.
+   * @param name is the metric name, ending in _seconds
+   * @param help is the description shown with the metric
+   * @param labels are label names and values, in turn
+   * @return the Histogram
+   */
+  public static Histogram histogram(String name, String help, String... labels) {
+    return (Histogram) family(name, "histogram", help).children
+        .computeIfAbsent(labelString(labels), key -> new Histogram());
+  }
+
+  /**
+   * Registers a gauge read when the metrics are shown. Registering a gauge
+   * again replaces the old one, so a restarted server reads its new state.
+   * @param name is the metric name
+   * @param help is the description shown with the metric
+   * @param value returns the current value
+   * @param labels are label names and values, in turn
+   */
+  public static void gauge(String name, String help, LongSupplier value, String... labels) {
+    family(name, "gauge", help).children.put(labelString(labels), value);
+  }
+
+  /**
+   * Registers a gauge with a fractional value, read when the metrics are shown.
+   * Registering a gauge again replaces the old one.
+   * @param name is the metric name
+   * @param help is the description shown with the metric
+   * @param value returns the current value
+   * @param labels are label names and values, in turn
+   */
+  public static void doubleGauge(String name, String help, DoubleSupplier value,
+      String... labels) {
+    family(name, "gauge", help).children.put(labelString(labels), value);
+  }
+
+  /**
+   * Returns the family with a name, creating it the first time.
+   * @param name is the metric name
+   * @param type is the Prometheus type of the family
+   * @param help is the description shown with the family
+   * @return the Family
+   * @throws IllegalArgumentException if the name is in use with another type
+   */
+  private static Family family(String name, String type, String help) {
+    Family family = FAMILIES.get(name);
+    if (family == null) {
+      family = FAMILIES.computeIfAbsent(name, key -> new Family(type, help));
+    }
+    if (!family.type.equals(type)) {
+      throw new IllegalArgumentException(name + " is already a " + family.type);
+    }
+    return family;
+  }
+
+  /**
+   * Writes labels the way they appear between braces.
+   * @param labels are label names and values, in turn
+   * @return the labels joined, without braces, or "" for none
+   */
+  private static String labelString(String... labels) {
+    StringBuilder joined = new StringBuilder();
+    for (int i = 0; i + 1 < labels.length; i += 2) {
+      if (joined.length() > 0) {
+        joined.append(',');
+      }
+      joined.append(labels[i]).append("=\"").append(labels[i + 1]
+          .replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+    }
+    return joined.toString();
+  }
+
+  /**
+   * Returns every metric in the Prometheus text exposition format.
+   * @return the metrics text
+   */
+  public static String scrape() {
+    StringBuilder text = new StringBuilder(4096);
+    for (Map.Entry<String, Family> entry : FAMILIES.entrySet()) {
+      String name = entry.getKey();
+      Family family = entry.getValue();
+      text.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+      text.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+      for (Map.Entry<String, Object> child : family.children.entrySet()) {
+        String labels = child.getKey();
+        Object metric = child.getValue();
+        if (metric instanceof Counter) {
+          sample(text, name, labels, ((Counter) metric).get());
+        } else if (metric instanceof LongSupplier) {
+          sample(text, name, labels, ((LongSupplier) metric).getAsLong());
+        } else if (metric instanceof DoubleSupplier) {
+          text.append(name);
+          if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+          }
+          text.append(' ').append(((DoubleSupplier) metric).getAsDouble()).append('\n');
+        } else {
+          Histogram histogram = (Histogram) metric;
+          String prefix = labels.isEmpty() ? "" : labels + ",";
+          long cumulative = 0;
+          for (int i = 0; i < BUCKETS.length; i++) {
+            cumulative += histogram.buckets[i].sum();
+            sample(text, name + "_bucket", prefix + "le=\"" + BUCKETS[i] + "\"", cumulative);
+          }
+          cumulative += histogram.buckets[BUCKETS.length].sum();
+          sample(text, name + "_bucket", prefix + "le=\"+Inf\"", cumulative);
+          text.append(name).append("_sum");
+          if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+          }
+          text.append(' ').append(histogram.sumNanos.sum() / 1e9).append('\n');
+          sample(text, name + "_count", labels, cumulative);
+        }
+      }
+    }
+    return text.toString();
+  }
+
+  /**
+   * Writes one sample line.
+   * @param text is where the line is written
+   * @param name is the sample name
+   * @param labels are the joined labels, or ""
+   * @param value is the sample value
+   */
+  private static void sample(StringBuilder text, String name, String labels, long value) {
+    text.append(name);
+    if (!labels.isEmpty()) {
+      text.append('{').append(labels).append('}');
+    }
+    text.append(' ').append(value).append('\n');
+  }
+}
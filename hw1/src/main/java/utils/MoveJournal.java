@@ -0,0 +1,318 @@
+package utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import models.BoardCheckpoint;
+import models.GameBoard;
+import models.Move;
+import models.Player;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes games, moves and players to a GameStore from a single background thread.
+ * Writes from many requests that arrive while a commit is running are
+ * batched into the next transaction (group commit), so the cost of a
+ * commit is shared by every write in the batch instead of paid per move.
+ * The Durability picked for the deployment decides how long callers wait.
+ * @author kenyaplenty
+ *
+ */
+public class MoveJournal {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MoveJournal.class);
+
+  /** How long a caller waits for its write. */
+  public enum Durability {
+    /** Wait until the transaction holding the write has been committed. */
+    SYNC,
+    /** Return as soon as the write is queued; it is committed shortly after. */
+    ASYNC,
+    /** Do not write to the store at all. */
+    MEMORY
+  }
+
+  /** Most writes committed in one transaction. */
+  private static final int MAX_BATCH_SIZE = 512;
+
+  /** Most writes waiting to be committed before callers are made to wait. */
+  private static final int MAX_PENDING = 65536;
+
+  private final GameStore store;
+
+  private final Durability durability;
+
+  private final BlockingQueue<Entry> pending = new LinkedBlockingQueue<>(MAX_PENDING);
+
+  private final Thread writer;
+
+  private volatile boolean running = true;
+
+  private final LongAdder batches = new LongAdder();
+
+  private final LongAdder batchedWrites = new LongAdder();
+
+  private final AtomicLong maxBatchSize = new AtomicLong();
+
+  private final LongAdder commitNanos = new LongAdder();
+
+  private final AtomicLong maxCommitNanos = new AtomicLong();
+
+  /**
+   * A write that is waiting for the writer thread.
+   */
+  private interface Write {
+    void apply(GameStore store) throws IOException;
+  }
+
+  /**
+   * A queued write and the future completed when it has been committed.
+   */
+  private static final class Entry {
+    private final Write write;
+
+    private final CompletableFuture<Boolean> committed = new CompletableFuture<>();
+
+    Entry(Write write) {
+      this.write = write;
+    }
+  }
+
+  /** Creates a new instance of the MoveJournal and starts its writer thread.
+   * @param store is the GameStore only the writer thread will write to
+   * @param durability is how long callers wait for their writes
+   */
+  public MoveJournal(GameStore store, Durability durability) {
+    this.store = store;
+    this.durability = durability;
+    this.writer = new Thread(this::writeLoop, "move-journal");
+    this.writer.setDaemon(true);
+    if (durability != Durability.MEMORY) {
+      this.writer.start();
+    }
+  }
+
+  /** Returns how long callers wait for their writes.
+   * @return the durability
+   */
+  public Durability getDurability() {
+    return durability;
+  }
+
+  /**
+   * Stores a game.
+   * @param gameBoard is the GameBoard whose ID and shape are stored
+   * @return a future of whether the game was stored, completed once the caller may go on
+   */
+  public CompletableFuture<Boolean> addGame(GameBoard gameBoard) {
+    long gameId = gameBoard.getGameId();
+    int size = gameBoard.getSize();
+    int winLength = gameBoard.getWinLength();
+    return submit(s -> s.addGame(gameId, size, winLength));
+  }
+
+  /**
+   * Stores a move.
+   * @param gameId is the ID of the game the move was made in
+   * @param seq is the number of the move within its game
+   * @param move is the Move to store
+   * @return a future of whether the move was stored, completed once the caller may go on
+   */
+  public CompletableFuture<Boolean> addMove(long gameId, long seq, Move move) {
+    return submit(s -> s.addMove(gameId, seq, move));
+  }
+
+  /**
+   * Stores a checkpoint of a game. Checkpoints queued after a move are
+   * committed with it or after it, never before.
+   * @param gameId is the ID of the game the checkpoint was taken of
+   * @param checkpoint is the BoardCheckpoint to store
+   * @return a future of whether the checkpoint was stored, completed once the caller may go on
+   */
+  public CompletableFuture<Boolean> addCheckpoint(long gameId, BoardCheckpoint checkpoint) {
+    return submit(s -> s.addCheckpoint(gameId, checkpoint));
+  }
+
+  /**
+   * Stores a player.
+   * @param gameId is the ID of the game the player is in
+   * @param player is the Player to store
+   * @return a future of whether the player was stored, completed once the caller may go on
+   */
+  public CompletableFuture<Boolean> addPlayer(long gameId, Player player) {
+    return submit(s -> s.addPlayer(gameId, player));
+  }
+
+  /**
+   * Marks a game as played against the computer.
+   * @param gameId is the ID of the game
+   * @return a future of whether the mark was stored, completed once the caller may go on
+   */
+  public CompletableFuture<Boolean> addBotOpponent(long gameId) {
+    return submit(s -> s.addBotOpponent(gameId));
+  }
+
+  /**
+   * Deletes a game with its players and moves.
+   * @param gameId is the ID of the game to delete
+   * @return a future of whether the game was deleted, completed once the caller may go on
+   */
+  public CompletableFuture<Boolean> deleteGame(long gameId) {
+    return submit(s -> s.deleteGame(gameId));
+  }
+
+  /**
+   * Queues a write. For SYNC durability the returned future completes when
+   * the write has been committed, so a caller that has to wait can hand the
+   * waiting to another thread; otherwise it is already complete.
+   * @param write is the write to queue
+   * @return a future of whether the write succeeded, or was queued when not waiting
+   */
+  private CompletableFuture<Boolean> submit(Write write) {
+    if (durability == Durability.MEMORY) {
+      return CompletableFuture.completedFuture(true);
+    }
+    if (!running) {
+      return CompletableFuture.completedFuture(false);
+    }
+    Entry entry = new Entry(write);
+    try {
+      pending.put(entry);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return CompletableFuture.completedFuture(false);
+    }
+    // closed while queueing: if the writer has not taken the entry it never will
+    if (!running && pending.remove(entry)) {
+      return CompletableFuture.completedFuture(false);
+    }
+    if (durability == Durability.ASYNC) {
+      return CompletableFuture.completedFuture(true);
+    }
+    return entry.committed;
+  }
+
+  /**
+   * Takes every write that is waiting, applies them in one transaction
+   * and commits, over and over until the journal is closed.
+   */
+  private void writeLoop() {
+    List<Entry> batch = new ArrayList<>();
+    while (running || !pending.isEmpty()) {
+      try {
+        Entry first = pending.take();
+        batch.add(first);
+        pending.drainTo(batch, MAX_BATCH_SIZE - 1);
+        commitBatch(batch);
+      } catch (InterruptedException e) {
+        // close() wakes the writer up so it can drain what is left and stop
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Applies a batch of writes in one transaction. If the commit fails the
+   * transaction is rolled back, so its writes are not committed by the next
+   * batch, and every write of the batch is reported as failed.
+   * @param batch is the list of writes to apply
+   */
+  private void commitBatch(List<Entry> batch) {
+    long start = System.nanoTime();
+    boolean[] succeeded = new boolean[batch.size()];
+    boolean committed = false;
+    try {
+      for (int i = 0; i < batch.size(); i++) {
+        try {
+          batch.get(i).write.apply(store);
+          succeeded[i] = true;
+        } catch (Exception e) {
+          LOG.error("Journal write failed", e);
+        }
+      }
+      store.commit();
+      committed = true;
+    } catch (Exception e) {
+      LOG.error("Journal commit of {} writes failed", batch.size(), e);
+      try {
+        store.rollback();
+      } catch (Exception e2) {
+        LOG.error("Journal rollback failed", e2);
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+
+    batches.increment();
+    batchedWrites.add(batch.size());
+    maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+    commitNanos.add(elapsed);
+    maxCommitNanos.accumulateAndGet(elapsed, Math::max);
+
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).committed.complete(committed && succeeded[i]);
+    }
+  }
+
+  /**
+   * Commits everything still queued and stops the writer thread.
+   */
+  public void close() {
+    running = false;
+    writer.interrupt();
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Returns the number of transactions committed.
+   * @return the batch count
+   */
+  public long getBatchCount() {
+    return batches.sum();
+  }
+
+  /** Returns the number of writes committed in all batches.
+   * @return the write count
+   */
+  public long getWriteCount() {
+    return batchedWrites.sum();
+  }
+
+  /** Returns the average number of writes per transaction.
+   * @return the average batch size
+   */
+  public double getAverageBatchSize() {
+    long count = batches.sum();
+    return count == 0 ? 0 : (double) batchedWrites.sum() / count;
+  }
+
+  /** Returns the largest number of writes committed in one transaction.
+   * @return the max batch size
+   */
+  public long getMaxBatchSize() {
+    return maxBatchSize.get();
+  }
+
+  /** Returns the total time spent applying and committing batches.
+   * @return the total commit time in nanoseconds
+   */
+  public long getTotalCommitNanos() {
+    return commitNanos.sum();
+  }
+
+  /** Returns the longest time spent applying and committing one batch.
+   * @return the max commit time in nanoseconds
+   */
+  public long getMaxCommitNanos() {
+    return maxCommitNanos.get();
+  }
+}
@@ -0,0 +1,462 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import models.BoardCheckpoint;
+import models.GameBoard;
+import models.Move;
+import models.Player;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A GameStore kept in an append-only log of fixed-size records, split over
+ * segment files that are memory-mapped, so storing a move is copying 32
+ * bytes into a mapped buffer and commit() is forcing the buffer to disk.
+ * Each record ends with a CRC32 of its other bytes. On startup the log is
+ * read up to the first empty or damaged record; a damaged record is a write
+ * torn by a crash, and it and everything after it is wiped. The stored
+ * games are also kept in memory, so reads never touch the files.
+ * Checkpoints are not stored; a restore replays the whole game.
+ * @author kenyaplenty
+ *
+ */
+public class MoveLog implements GameStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MoveLog.class);
+
+  /** Number of bytes in a record. */
+  public static final int RECORD_SIZE = 32;
+
+  /** Number of bytes in a segment file unless another size is given. */
+  public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+
+  private static final byte GAME = 1;
+
+  private static final byte PLAYER = 2;
+
+  private static final byte MOVE = 3;
+
+  private static final byte DELETE = 4;
+
+  private static final byte BOT_OPPONENT = 5;
+
+  /** Where the checksum of a record starts; it covers the bytes before it. */
+  private static final int CHECKSUM_OFFSET = RECORD_SIZE - 4;
+
+  private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+
+  private final Path directory;
+
+  private final int segmentSize;
+
+  private final Map<Long, StoredGame> games = new ConcurrentHashMap<>();
+
+  private final CRC32 checksum = new CRC32();
+
+  private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+  private long segmentIndex;
+
+  private FileChannel channel;
+
+  private MappedByteBuffer segment;
+
+  private long recoveredRecords;
+
+  private long discardedRecords;
+
+  /**
+   * The stored state of one game.
+   */
+  private static final class StoredGame {
+    private final int size;
+
+    private final int winLength;
+
+    private Player p1;
+
+    private Player p2;
+
+    private boolean botOpponent;
+
+    /** Each move packed as seq, player id, x and y, from the high bits down. */
+    private long[] moves = new long[16];
+
+    private int moveCount;
+
+    StoredGame(int size, int winLength) {
+      this.size = size;
+      this.winLength = winLength;
+    }
+
+    synchronized void setPlayer(Player player) {
+      if (player.getId() == 1) {
+        p1 = player;
+      } else if (player.getId() == 2) {
+        p2 = player;
+      }
+    }
+
+    synchronized void setBotOpponent() {
+      botOpponent = true;
+    }
+
+    synchronized void addMove(long seq, int playerId, int moveX, int moveY) {
+      if (moveCount == moves.length) {
+        moves = Arrays.copyOf(moves, moveCount * 2);
+      }
+      moves[moveCount++] = seq << 24 | (playerId & 0xFF) << 16 | packCoordinate(moveX) << 8
+          | packCoordinate(moveY);
+    }
+
+    /** Keeps a coordinate in a byte; one that does not fit is off every board anyway. */
+    private static int packCoordinate(int coordinate) {
+      return coordinate < 0 || coordinate > 0xFF ? 0xFF : coordinate;
+    }
+
+    synchronized GameBoard restore(long gameId) {
+      GameBoard gameBoard = new GameBoard(size, winLength);
+      gameBoard.setGameId(gameId);
+      gameBoard.setBotOpponent(botOpponent);
+      if (p1 != null) {
+        gameBoard.setP1(p1);
+      }
+      if (p2 != null) {
+        gameBoard.setP2(p2);
+        gameBoard.setGameStarted(true);
+      }
+      long[] sorted = Arrays.copyOf(moves, moveCount);
+      Arrays.sort(sorted);
+      if (p1 != null && p2 != null) {
+        List<Move> storedMoves = new ArrayList<>(moveCount);
+        for (long packed : sorted) {
+          Player player = ((packed >>> 16) & 0xFF) == 1 ? p1 : p2;
+          storedMoves.add(new Move(player, (int) (packed >>> 8) & 0xFF, (int) packed & 0xFF));
+        }
+        GameDatabase.replayMoves(gameBoard, storedMoves);
+      }
+      if (moveCount > 0) {
+        gameBoard.setLastMoveSeq(sorted[moveCount - 1] >>> 24);
+      }
+      return gameBoard;
+    }
+  }
+
+  /** Opens the log in a directory, recovering what it holds.
+   * @param directory is the directory of the segment files, created if missing
+   * @param segmentSize is the number of bytes in a new segment file
+   * @throws IOException if the segment files cannot be read or created
+   */
+  public MoveLog(Path directory, int segmentSize) throws IOException {
+    if (segmentSize < RECORD_SIZE || segmentSize % RECORD_SIZE != 0) {
+      throw new IllegalArgumentException("Segment size " + segmentSize
+          + " is not a multiple of " + RECORD_SIZE);
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    Files.createDirectories(directory);
+    recover();
+    LOG.info("Recovered {} records from the move log, discarded {}", recoveredRecords, 
+        discardedRecords);
+  }
+
+  /**
+   * Reads every segment up to the end of the log, wipes a torn tail and
+   * leaves the last segment mapped for appending.
+   * @throws IOException if a segment cannot be read or written
+   */
+  private void recover() throws IOException {
+    List<Long> segments = listSegments();
+    boolean ended = false;
+    for (long index : segments) {
+      if (ended) {
+        // nothing after the end of the log can have been committed
+        Files.delete(segmentPath(index));
+        continue;
+      }
+      openSegment(index);
+      while (segment.remaining() >= RECORD_SIZE && readRecord()) {
+        applyRecord(record);
+        recoveredRecords++;
+      }
+      if (segment.remaining() >= RECORD_SIZE) {
+        ended = true;
+        wipeTail();
+      }
+    }
+    if (segments.isEmpty()) {
+      openSegment(0);
+    }
+  }
+
+  /**
+   * Reads the record at the position of the mapped segment.
+   * @return true and the position moved past the record if it is whole,
+   *     false and the position left alone if it is empty or torn
+   */
+  private boolean readRecord() {
+    // called through ByteBuffer, as MappedByteBuffer only overrides these from Java 17 on
+    ByteBuffer buffer = segment;
+    int start = buffer.position();
+    record.clear();
+    buffer.duplicate().get(record.array());
+    checksum.reset();
+    checksum.update(record.array(), 0, CHECKSUM_OFFSET);
+    byte type = record.get(0);
+    if (type < GAME || type > BOT_OPPONENT
+        || record.getInt(CHECKSUM_OFFSET) != (int) checksum.getValue()) {
+      return false;
+    }
+    buffer.position(start + RECORD_SIZE);
+    return true;
+  }
+
+  /**
+   * Zeroes the segment from its position on, counting the records that
+   * were written there.
+   */
+  private void wipeTail() {
+    int start = segment.position();
+    for (int offset = start; offset < segment.limit(); offset += RECORD_SIZE) {
+      boolean written = false;
+      for (int i = 0; i < RECORD_SIZE; i++) {
+        if (segment.get(offset + i) != 0) {
+          written = true;
+          segment.put(offset + i, (byte) 0);
+        }
+      }
+      if (written) {
+        discardedRecords++;
+      }
+    }
+    segment.force();
+  }
+
+  /**
+   * Returns the indexes of the segment files in ascending order.
+   * @return List of segment indexes
+   * @throws IOException if the directory cannot be listed
+   */
+  private List<Long> listSegments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(file -> SEGMENT_NAME.matcher(file.getFileName().toString()))
+          .filter(Matcher::matches)
+          .map(name -> Long.parseLong(name.group(1)))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private Path segmentPath(long index) {
+    return directory.resolve(String.format("segment-%08d.log", index));
+  }
+
+  /**
+   * Maps a segment file, creating it zero-filled if it does not exist.
+   * @param index is the index of the segment
+   * @throws IOException if the file cannot be opened or mapped
+   */
+  private void openSegment(long index) throws IOException {
+    if (channel != null) {
+      segment.force();
+      channel.close();
+    }
+    Path path = segmentPath(index);
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    long size = Math.max(channel.size() - channel.size() % RECORD_SIZE, segmentSize);
+    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    segmentIndex = index;
+  }
+
+  /**
+   * Copies a record into the mapped segment, moving on to a new segment
+   * when this one is full, and applies it to the games in memory.
+   * @throws IOException if a new segment cannot be created
+   */
+  private void append() throws IOException {
+    checksum.reset();
+    checksum.update(record.array(), 0, CHECKSUM_OFFSET);
+    record.putInt(CHECKSUM_OFFSET, (int) checksum.getValue());
+    if (segment.remaining() < RECORD_SIZE) {
+      openSegment(segmentIndex + 1);
+    }
+    record.rewind();
+    segment.put(record);
+    applyRecord(record);
+  }
+
+  /**
+   * Starts a new record in the record buffer.
+   * @param type is the kind of record
+   * @param gameId is the ID of the game the record is about
+   */
+  private void startRecord(byte type, long gameId) {
+    record.clear();
+    Arrays.fill(record.array(), (byte) 0);
+    record.put(0, type);
+    record.putLong(4, gameId);
+  }
+
+  /**
+   * Applies a whole record to the games in memory.
+   * @param rec is the record; its bytes are read by absolute index
+   */
+  private void applyRecord(ByteBuffer rec) {
+    long gameId = rec.getLong(4);
+    StoredGame game;
+    switch (rec.get(0)) {
+      case GAME:
+        games.put(gameId, new StoredGame(rec.getInt(20), rec.getInt(24)));
+        break;
+      case PLAYER:
+        game = games.get(gameId);
+        if (game != null) {
+          game.setPlayer(new Player((char) rec.getInt(20), rec.get(1)));
+        }
+        break;
+      case MOVE:
+        game = games.get(gameId);
+        if (game != null) {
+          game.addMove(rec.getLong(12), rec.get(1), rec.getInt(20), rec.getInt(24));
+        }
+        break;
+      case DELETE:
+        games.remove(gameId);
+        break;
+      case BOT_OPPONENT:
+        game = games.get(gameId);
+        if (game != null) {
+          game.setBotOpponent();
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public void addGame(long gameId, int size, int winLength) throws IOException {
+    startRecord(GAME, gameId);
+    record.putInt(20, size);
+    record.putInt(24, winLength);
+    append();
+  }
+
+  @Override
+  public void addPlayer(long gameId, Player player) throws IOException {
+    startRecord(PLAYER, gameId);
+    record.put(1, (byte) player.getId());
+    record.putInt(20, player.getType());
+    append();
+  }
+
+  @Override
+  public void addBotOpponent(long gameId) throws IOException {
+    startRecord(BOT_OPPONENT, gameId);
+    append();
+  }
+
+  @Override
+  public void addMove(long gameId, long seq, Move move) throws IOException {
+    startRecord(MOVE, gameId);
+    record.put(1, (byte) move.getPlayer().getId());
+    record.putLong(12, seq);
+    record.putInt(20, move.getMoveX());
+    record.putInt(24, move.getMoveY());
+    append();
+  }
+
+  @Override
+  public void addCheckpoint(long gameId, BoardCheckpoint checkpoint) {
+    // a game is replayed from memory, which is as fast as loading a checkpoint
+  }
+
+  @Override
+  public void deleteGame(long gameId) throws IOException {
+    startRecord(DELETE, gameId);
+    append();
+  }
+
+  @Override
+  public void commit() {
+    segment.force();
+  }
+
+  @Override
+  public void rollback() {
+    // records are applied as they are appended; there is no transaction to undo
+  }
+
+  @Override
+  public List<Long> retrieveGameIds() {
+    List<Long> gameIds = new ArrayList<>(games.keySet());
+    Collections.sort(gameIds);
+    return gameIds;
+  }
+
+  @Override
+  public GameBoard restoreGameBoard(long gameId) {
+    StoredGame game = games.get(gameId);
+    return game == null ? null : game.restore(gameId);
+  }
+
+  @Override
+  public List<GameBoard> restoreAllGameBoards(ForkJoinPool pool) {
+    List<ForkJoinTask<GameBoard>> rebuilds = new ArrayList<>();
+    for (long gameId : retrieveGameIds()) {
+      StoredGame game = games.get(gameId);
+      if (game != null) {
+        rebuilds.add(pool.submit(() -> game.restore(gameId)));
+      }
+    }
+    List<GameBoard> restored = new ArrayList<>(rebuilds.size());
+    for (ForkJoinTask<GameBoard> rebuild : rebuilds) {
+      restored.add(rebuild.join());
+    }
+    return restored;
+  }
+
+  /** Returns the number of whole records read when the log was opened.
+   * @return the recovered record count
+   */
+  public long getRecoveredRecords() {
+    return recoveredRecords;
+  }
+
+  /** Returns the number of records after the end of the log wiped when it was opened.
+   * @return the discarded record count
+   */
+  public long getDiscardedRecords() {
+    return discardedRecords;
+  }
+
+  @Override
+  public void close() {
+    try {
+      segment.force();
+      channel.close();
+    } catch (IOException e) {
+      LOG.error("Closing the move log segment failed", e);
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package utils;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import models.BoardCheckpoint;
+import models.GameBoard;
+import models.Move;
+import models.Player;
+
+/**
+ * The GameStore kept in the SQLite database through GameDatabase. Writes go
+ * through one connection held for the writer thread in a transaction that
+ * commit() ends; reads borrow the other connections of the pool.
+ * @author kenyaplenty
+ *
+ */
+public class SqliteGameStore implements GameStore {
+
+  private static final Metrics.Histogram INSERT_GAME = statementTimer("insertGame");
+  private static final Metrics.Histogram INSERT_PLAYER = statementTimer("insertPlayer");
+  private static final Metrics.Histogram UPDATE_BOT_OPPONENT =
+      statementTimer("updateBotOpponent");
+  private static final Metrics.Histogram INSERT_MOVE = statementTimer("insertMove");
+  private static final Metrics.Histogram INSERT_CHECKPOINT = statementTimer("insertCheckpoint");
+  private static final Metrics.Histogram DELETE_GAME = statementTimer("deleteGame");
+  private static final Metrics.Histogram COMMIT = Metrics.histogram(
+      "sqlite_commit_duration_seconds", "Time to commit a batch of writes to the database");
+
+  private final ConnectionPool pool;
+
+  private final Connection writeConn;
+
+  /** Creates a new instance of the SqliteGameStore and brings its tables up to date.
+   * @param pool is the ConnectionPool the store owns from now on; it needs
+   *     at least two connections so reads never wait for the writer
+   * @throws IllegalStateException if the tables cannot be brought up to date;
+   *     the pool is closed
+   */
+  public SqliteGameStore(ConnectionPool pool) {
+    this.pool = pool;
+    this.writeConn = pool.borrow();
+    if (!GameDatabase.migrateSchema(writeConn)) {
+      pool.close();
+      throw new IllegalStateException("The database schema could not be migrated");
+    }
+    try {
+      // every write joins the open transaction until the journal commits it
+      writeConn.setAutoCommit(false);
+    } catch (SQLException e) {
+      pool.close();
+      throw new IllegalStateException("The writer connection could not start a transaction", e);
+    }
+  }
+
+  @Override
+  public void addGame(long gameId, int size, int winLength) throws IOException {
+    write(INSERT_GAME, c -> GameDatabase.insertGame(c, gameId, size, winLength));
+  }
+
+  @Override
+  public void addPlayer(long gameId, Player player) throws IOException {
+    write(INSERT_PLAYER, c -> GameDatabase.insertPlayer(c, gameId, player));
+  }
+
+  @Override
+  public void addBotOpponent(long gameId) throws IOException {
+    write(UPDATE_BOT_OPPONENT, c -> GameDatabase.updateBotOpponent(c, gameId));
+  }
+
+  @Override
+  public void addMove(long gameId, long seq, Move move) throws IOException {
+    write(INSERT_MOVE, c -> GameDatabase.insertMove(c, gameId, seq, move));
+  }
+
+  @Override
+  public void addCheckpoint(long gameId, BoardCheckpoint checkpoint) throws IOException {
+    write(INSERT_CHECKPOINT, c -> GameDatabase.insertCheckpoint(c, gameId, checkpoint));
+  }
+
+  @Override
+  public void deleteGame(long gameId) throws IOException {
+    write(DELETE_GAME, c -> GameDatabase.deleteGame(c, gameId));
+  }
+
+  @Override
+  public void commit() throws IOException {
+    write(COMMIT, Connection::commit);
+  }
+
+  @Override
+  public void rollback() throws IOException {
+    try {
+      writeConn.rollback();
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * A statement run on the writer connection.
+   */
+  private interface Write {
+    void apply(Connection conn) throws SQLException;
+  }
+
+  /**
+   * Returns the latency histogram of one kind of statement.
+   * @param statement is the GameDatabase method that runs the statement
+   * @return the Histogram
+   */
+  private static Metrics.Histogram statementTimer(String statement) {
+    return Metrics.histogram("sqlite_statement_duration_seconds", 
+        "Time to run a write statement on the database", "statement", statement);
+  }
+
+  /**
+   * Runs a statement inside the open transaction of the writer connection.
+   * @param timer is the Histogram the time of the statement is recorded in
+   * @param write is the statement to run
+   * @throws IOException wrapping the SQLException if the statement fails
+   */
+  private void write(Metrics.Histogram timer, Write write) throws IOException {
+    long start = System.nanoTime();
+    try {
+      write.apply(writeConn);
+    } catch (SQLException e) {
+      throw new IOException(e);
+    } finally {
+      timer.observeSince(start);
+    }
+  }
+
+  @Override
+  public List<Long> retrieveGameIds() {
+    Connection conn = pool.borrow();
+    try {
+      return GameDatabase.retrieveGameIds(conn);
+    } finally {
+      pool.release(conn);
+    }
+  }
+
+  @Override
+  public GameBoard restoreGameBoard(long gameId) {
+    Connection conn = pool.borrow();
+    try {
+      return GameDatabase.restoreGameBoard(conn, gameId);
+    } finally {
+      pool.release(conn);
+    }
+  }
+
+  @Override
+  public List<GameBoard> restoreAllGameBoards(ForkJoinPool forkJoinPool) {
+    Connection conn = pool.borrow();
+    try {
+      return GameDatabase.restoreAllGameBoards(conn, forkJoinPool);
+    } finally {
+      pool.release(conn);
+    }
+  }
+
+  @Override
+  public void close() {
+    pool.release(writeConn);
+    pool.close();
+  }
+}
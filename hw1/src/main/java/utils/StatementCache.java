@@ -0,0 +1,67 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps one PreparedStatement per SQL string for each connection, so the
+ * SQL of the hot queries is parsed once per connection instead of on every
+ * call. A connection is only ever used by one thread at a time, so its
+ * statements are too. Statements handed out here must not be closed by the
+ * caller; they are closed by forget() when the connection goes away.
+ * @author kenyaplenty
+ *
+ */
+public final class StatementCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StatementCache.class);
+
+  private static final Map<Connection, Map<String, PreparedStatement>> STATEMENTS =
+      new ConcurrentHashMap<>();
+
+  private StatementCache() {
+  }
+
+  /**
+   * Returns the cached PreparedStatement for some SQL, preparing it the first time.
+   * @param conn is the Connection the statement belongs to
+   * @param sql is the SQL of the statement
+   * @return the PreparedStatement, with its parameters cleared
+   * @throws SQLException if the SQL cannot be prepared
+   */
+  public static PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+    Map<String, PreparedStatement> statements =
+        STATEMENTS.computeIfAbsent(conn, c -> new ConcurrentHashMap<>());
+    PreparedStatement stmt = statements.get(sql);
+    if (stmt == null) {
+      stmt = conn.prepareStatement(sql);
+      statements.put(sql, stmt);
+    } else {
+      stmt.clearParameters();
+    }
+    return stmt;
+  }
+
+  /**
+   * Closes and forgets every statement prepared on a connection.
+   * @param conn is the Connection that is being closed
+   */
+  public static void forget(Connection conn) {
+    Map<String, PreparedStatement> statements = STATEMENTS.remove(conn);
+    if (statements == null) {
+      return;
+    }
+    for (PreparedStatement stmt : statements.values()) {
+      try {
+        stmt.close();
+      } catch (SQLException e) {
+        LOG.error("Closing a cached statement failed", e);
+      }
+    }
+  }
+}
@@ -7,6 +7,7 @@ import controllers.PlayGame;
 import kong.unirest.HttpResponse;
 import kong.unirest.Unirest;
 import kong.unirest.json.JSONObject;
+import models.BoardCheckpoint;
 import models.GameBoard;
 import models.Player;
 import org.junit.jupiter.api.AfterAll;
@@ -352,6 +353,56 @@ class GameRebootTest {
     System.out.println("--- Testing After Invalid Move ---");
   }
   
+
+  /**
+   * This test case ensures that the computer keeps
+   * playing player 2 of a game restored after a reboot.
+   */
+  @Test
+  public void checkBotKeepsPlayingAfterReboot() {
+    Unirest.get("http://localhost:8080/newgame").asString();
+    Unirest.post("http://localhost:8080/startgame").body("type=X").asString();
+    Unirest.get("http://localhost:8080/joinbot").asString(); 
+    Unirest.post("http://localhost:8080/move/{playerId}").routeParam("playerId", "1").body("x=1&y=1").asString();
+    
+    PlayGame.stop(); 
+    
+    try {
+      Thread.sleep(2000);
+    } catch (InterruptedException e) {
+  
+      e.printStackTrace();
+    } 
+    
+    PlayGame.startGame();
+    
+    HttpResponse getBoardResponse = Unirest.get("http://localhost:8080/getgameboard").asString(); 
+    GameBoard gameBoard = gson.fromJson((String) getBoardResponse.getBody(), GameBoard.class); 
+    assertEquals(1, gameBoard.getTurn()); 
+    assertEquals(2, countMarks(gameBoard)); 
+    
+    String cells = gameBoard.getCells(); 
+    int free = cells.indexOf(BoardCheckpoint.EMPTY_CELL); 
+    Unirest.post("http://localhost:8080/move/{playerId}").routeParam("playerId", "1")
+        .body("x=" + free / 3 + "&y=" + free % 3).asString();
+    
+    getBoardResponse = Unirest.get("http://localhost:8080/getgameboard").asString(); 
+    gameBoard = gson.fromJson((String) getBoardResponse.getBody(), GameBoard.class); 
+    assertEquals(1, gameBoard.getTurn()); 
+    assertEquals(4, countMarks(gameBoard)); 
+    
+    System.out.println("--- Testing Bot After Reboot ---");
+  }
+  
+  private static int countMarks(GameBoard gameBoard) {
+    int marks = 0; 
+    for (char cell : gameBoard.getCells().toCharArray()) {
+      if (cell != BoardCheckpoint.EMPTY_CELL) {
+        marks++; 
+      }
+    }
+    return marks; 
+  }
   
 
   /**
@@ -0,0 +1,212 @@
+package integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import controllers.PlayGame;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import kong.unirest.Unirest;
+import models.GameBoard;
+import models.Message;
+import models.MoveFrame;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The following tests open sockets on /gameboard/:gameId and check
+ * what they receive in delta mode, that moves can be made with binary
+ * frames, and that a socket with a malformed game ID is turned away.
+ * @author kenyaplenty
+ *
+ */
+class WebSocketTest {
+
+  private static final long TIMEOUT_SECONDS = 5;
+
+  Gson gson = new Gson();
+
+  WebSocketClient client;
+
+  /**
+   * Collects what a socket receives.
+   */
+  public static class Socket extends WebSocketAdapter {
+    final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+    final CompletableFuture<Integer> closed = new CompletableFuture<>();
+
+    @Override
+    public void onWebSocketText(String message) {
+      messages.add(message);
+    }
+
+    @Override
+    public void onWebSocketClose(int statusCode, String reason) {
+      closed.complete(statusCode);
+    }
+
+    /** Waits for the next message. */
+    String next() throws InterruptedException {
+      String message = messages.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      assertNotNull(message, "No message arrived");
+      return message;
+    }
+  }
+
+  /**
+   * Runs only once before the tests start.
+   */
+  @BeforeAll
+  public static void init() {
+    PlayGame.main(null);
+  }
+
+  /**
+   * Starts a WebSocket client before every test.
+   */
+  @BeforeEach
+  public void startClient() throws Exception {
+    // a GET first, which is retried on a connection left over from a stopped server
+    Unirest.get("http://localhost:8080/").asString();
+    client = new WebSocketClient();
+    client.start();
+  }
+
+  /**
+   * Starts a game with both players in it.
+   */
+  private long startGame() {
+    String board = Unirest.post("http://localhost:8080/startgame").body("type=X")
+        .asString().getBody();
+    long gameId = gson.fromJson(board, GameBoard.class).getGameId();
+    Unirest.get("http://localhost:8080/joingame/" + gameId).asString();
+    return gameId;
+  }
+
+  private Socket connect(String path) throws Exception {
+    Socket socket = new Socket();
+    client.connect(socket, URI.create("ws://localhost:8080" + path))
+        .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    return socket;
+  }
+
+  /**
+   * Waits for the next Message, skipping the boards sent before it.
+   */
+  private Message nextMessage(Socket socket) throws InterruptedException {
+    while (true) {
+      JsonObject received = gson.fromJson(socket.next(), JsonObject.class);
+      if (received.has("moveValidity")) {
+        return gson.fromJson(received, Message.class);
+      }
+    }
+  }
+
+  /**
+   * This test case ensures that a delta socket gets the whole
+   * board when it connects, a move event for each move, and the
+   * whole board again when it asks for a resync.
+   */
+  @Test
+  public void deltaSocketGetsMoveEvents() throws Exception {
+    long gameId = startGame();
+    Socket socket = connect("/gameboard/" + gameId + "?mode=delta");
+
+    GameBoard snapshot = gson.fromJson(socket.next(), GameBoard.class);
+    assertEquals(gameId, snapshot.getGameId());
+
+    Unirest.post("http://localhost:8080/move/" + gameId + "/1").body("x=0&y=2").asString();
+    JsonObject event = gson.fromJson(socket.next(), JsonObject.class);
+    assertEquals(snapshot.getVersion(), event.get("pv").getAsLong());
+    assertEquals(0, event.get("x").getAsInt());
+    assertEquals(2, event.get("y").getAsInt());
+    assertEquals("X", event.get("s").getAsString());
+    assertEquals(2, event.get("t").getAsInt());
+
+    socket.getSession().getRemote().sendString("resync");
+    GameBoard resynced = gson.fromJson(socket.next(), GameBoard.class);
+    assertEquals(event.get("v").getAsLong(), resynced.getVersion());
+    assertEquals(2, resynced.getTurn());
+  }
+
+  /**
+   * This test case ensures that a move sent as a binary frame is
+   * made in the socket's game, and that the socket gets both the
+   * new board and the Message of the move.
+   */
+  @Test
+  public void binaryFrameMakesMove() throws Exception {
+    long gameId = startGame();
+    Socket socket = connect("/gameboard/" + gameId);
+
+    socket.getSession().getRemote().sendBytes(ByteBuffer.wrap(new MoveFrame(1, 1, 1).encode()));
+    JsonObject board = null;
+    JsonObject message = null;
+    for (int i = 0; i < 2; i++) {
+      JsonObject received = gson.fromJson(socket.next(), JsonObject.class);
+      if (received.has("moveValidity")) {
+        message = received;
+      } else {
+        board = received;
+      }
+    }
+    assertNotNull(board);
+    assertNotNull(message);
+    assertTrue(message.get("moveValidity").getAsBoolean());
+    assertEquals(gameId, board.get("gameId").getAsLong());
+    assertEquals(2, board.get("turn").getAsInt());
+    assertEquals("X", board.getAsJsonArray("boardState").get(1).getAsJsonArray().get(1)
+        .getAsString());
+
+    // player 1 again: the move is refused
+    socket.getSession().getRemote().sendBytes(ByteBuffer.wrap(new MoveFrame(1, 0, 0).encode()));
+    Message refused = nextMessage(socket);
+    assertFalse(refused.getMoveValidity());
+
+    socket.getSession().getRemote().sendBytes(ByteBuffer.wrap(new byte[] {1, 0}));
+    Message malformed = nextMessage(socket);
+    assertFalse(malformed.getMoveValidity());
+    assertEquals(-1, malformed.getCode());
+  }
+
+  /**
+   * This test case ensures that a socket whose game ID is
+   * not a number is closed instead of following the default game.
+   */
+  @Test
+  public void malformedGameIdIsRejected() throws Exception {
+    Socket socket = connect("/gameboard/not-a-game");
+    assertEquals(StatusCode.POLICY_VIOLATION,
+        (int) socket.closed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Stops the WebSocket client after every test.
+   */
+  @AfterEach
+  public void stopClient() throws Exception {
+    client.stop();
+  }
+
+  /**
+   * This method runs only once after all the test cases have been executed.
+   */
+  @AfterAll
+  public static void close() {
+    PlayGame.stop();
+  }
+}
@@ -0,0 +1,80 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import models.AlphaBetaBot;
+import models.GameBoard;
+import models.Move;
+import models.Player;
+import models.PositionIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class checks that the AlphaBetaBot takes a win, blocks a loss and
+ * never loses against itself.
+ * @author kenyaplenty
+ *
+ */
+public class AlphaBetaBotTest {
+  GameBoard gameBoard;
+  Player testPlayer1;
+  Player testPlayer2;
+
+  /**
+   * This method resets the game board, initializes the players and starts the game.
+   */
+  @BeforeEach
+  public void init() {
+    gameBoard = new GameBoard();
+    testPlayer1 = new Player('X', 1);
+    testPlayer2 = new Player('O', 2);
+    gameBoard.setGameStarted(true);
+  }
+
+  @Test
+  public void testBotTakesWinningMove() {
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 0, 0));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer2, 1, 1));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 2, 2));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer2, 0, 1));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 0, 2));
+    Move move = AlphaBetaBot.chooseMove(gameBoard, testPlayer2);
+    assertEquals(2, move.getMoveX());
+    assertEquals(1, move.getMoveY());
+  }
+
+  @Test
+  public void testBotBlocksLosingLine() {
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 0, 0));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer2, 1, 1));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 1, 0));
+    Move move = AlphaBetaBot.chooseMove(gameBoard, testPlayer2);
+    assertEquals(2, move.getMoveX());
+    assertEquals(0, move.getMoveY());
+  }
+
+  @Test
+  public void testBotAgainstItselfIsDraw() {
+    Player[] players = {testPlayer1, testPlayer2};
+    for (int i = 0; i < 9; i++) {
+      Player mover = players[i % 2];
+      Move move = AlphaBetaBot.chooseMove(gameBoard, mover);
+      assertTrue(gameBoard.isValidMove(move));
+      gameBoard.addMoveToBoardAndSwitchesTurns(move);
+    }
+    assertTrue(gameBoard.isGameDraw());
+    assertNull(AlphaBetaBot.chooseMove(gameBoard, testPlayer1));
+    assertTrue(AlphaBetaBot.getTableSize() > 0);
+    assertTrue(AlphaBetaBot.getTableSize() <= PositionIndex.getPositionCount());
+  }
+
+  @Test
+  public void testBotOnlyPlaysStandardBoard() {
+    assertThrows(IllegalArgumentException.class,
+        () -> AlphaBetaBot.chooseMove(new GameBoard(4, 3), testPlayer2));
+  }
+}
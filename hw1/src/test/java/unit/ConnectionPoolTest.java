@@ -0,0 +1,27 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import utils.ConnectionPool;
+
+/**
+ * This class checks that a ConnectionPool refuses sizes the store would
+ * deadlock on and connections that cannot be opened.
+ * @author kenyaplenty
+ *
+ */
+public class ConnectionPoolTest {
+
+  @Test
+  public void testRejectsPoolTooSmallForStore() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new ConnectionPool("jdbc:sqlite::memory:", 1));
+  }
+
+  @Test
+  public void testFailsWhenConnectionCannotBeOpened() {
+    assertThrows(IllegalStateException.class,
+        () -> new ConnectionPool("jdbc:nosuchdriver:test", 2));
+  }
+}
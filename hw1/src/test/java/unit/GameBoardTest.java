@@ -6,9 +6,15 @@
 
 package unit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import models.BoardCheckpoint;
+import models.BoardSnapshot;
 import models.GameBoard;
 import models.Move;
 import models.Player;
@@ -102,6 +108,73 @@ public class GameBoardTest {
     assertTrue(gameBoard.playerWonGame(testPlayer1));
   }
 
+  @Test
+  public void testPlayerWonWithDiagonalLine() {
+    for (int i = 0; i < 3; i++) {
+      Move currentMove = new Move(testPlayer2, i, i);
+      gameBoard.addMoveToBoardAndSwitchesTurns(currentMove);
+    }
+    assertTrue(gameBoard.playerWonGame(testPlayer2));
+    assertFalse(gameBoard.playerWonGame(testPlayer1));
+  }
+
+  @Test
+  public void testPlayerWonWithAntiDiagonalLine() {
+    for (int i = 0; i < 3; i++) {
+      Move currentMove = new Move(testPlayer1, i, 2 - i);
+      gameBoard.addMoveToBoardAndSwitchesTurns(currentMove);
+    }
+    assertTrue(gameBoard.playerWonGame(testPlayer1));
+  }
+
+  @Test
+  public void testIsValidMoveOutsideBoard() {
+    Move currentMove = new Move(testPlayer1, 3, 0);
+    assertFalse(gameBoard.isValidMove(currentMove));
+  }
+
+  @Test
+  public void testPlayerWonWithFiveInARowOnLargeBoard() {
+    GameBoard largeBoard = new GameBoard(19, 5);
+    largeBoard.setGameStarted(true);
+    for (int i = 0; i < 5; i++) {
+      Move currentMove = new Move(testPlayer1, 14 - i, 4 + i);
+      assertTrue(largeBoard.isValidMove(currentMove));
+      largeBoard.addMoveToBoardAndSwitchesTurns(currentMove);
+      assertEquals(i == 4, largeBoard.playerWonGame(testPlayer1));
+      largeBoard.setTurn(1);
+    }
+    assertFalse(largeBoard.playerWonGame(testPlayer2));
+  }
+
+  @Test
+  public void testPlayerWonWithBrokenLineOnLargeBoard() {
+    GameBoard largeBoard = new GameBoard(7, 4);
+    largeBoard.setGameStarted(true);
+    for (int i = 0; i < 5; i++) {
+      if (i != 2) {
+        largeBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer2, 3, i));
+      }
+    }
+    assertFalse(largeBoard.playerWonGame(testPlayer2));
+    largeBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer2, 3, 2));
+    assertTrue(largeBoard.playerWonGame(testPlayer2));
+  }
+
+  @Test
+  public void testIsGameDrawWithFullLargeBoard() {
+    GameBoard largeBoard = new GameBoard(4, 4);
+    largeBoard.setGameStarted(true);
+    String rows = "XXOO" + "OOXX" + "XXOO" + "OOXX";
+    for (int i = 0; i < rows.length(); i++) {
+      Player player = rows.charAt(i) == 'X' ? testPlayer1 : testPlayer2;
+      largeBoard.addMoveToBoardAndSwitchesTurns(new Move(player, i / 4, i % 4));
+    }
+    assertFalse(largeBoard.playerWonGame(testPlayer1));
+    assertFalse(largeBoard.playerWonGame(testPlayer2));
+    assertTrue(largeBoard.isGameDraw());
+  }
+
   @Test
   public void testPlayerWonWithAlmostVerticalLine() {
     Move firstMove = new Move(testPlayer1, 0, 0);
@@ -182,6 +255,50 @@ public class GameBoardTest {
     assertTrue(gameBoard.isGameDraw());
   }
 
+  @Test
+  public void testSnapshotIsReusedUntilBoardChanges() {
+    BoardSnapshot firstSnapshot = gameBoard.getSnapshot();
+    assertSame(firstSnapshot, gameBoard.getSnapshot());
+
+    long versionBeforeMove = gameBoard.getVersion();
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 1, 1));
+    assertTrue(gameBoard.getVersion() > versionBeforeMove);
+
+    BoardSnapshot secondSnapshot = gameBoard.getSnapshot();
+    assertNotSame(firstSnapshot, secondSnapshot);
+    assertEquals(gameBoard.getVersion(), secondSnapshot.getVersion());
+    assertTrue(secondSnapshot.getJson().contains("\"X\""));
+  }
+
+  @Test
+  public void testPublishedSnapshotIsLastEncodedOne() {
+    assertNull(gameBoard.getPublishedSnapshot());
+    BoardSnapshot published = gameBoard.getSnapshot();
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 1, 1));
+    // the move is not visible to readers until the board is encoded again
+    assertSame(published, gameBoard.getPublishedSnapshot());
+    assertSame(gameBoard.getSnapshot(), gameBoard.getPublishedSnapshot());
+    assertNotSame(published, gameBoard.getPublishedSnapshot());
+  }
+
+  @Test
+  public void testCheckpointRestoresLinesOfLargeBoard() {
+    GameBoard largeBoard = new GameBoard(7, 4);
+    largeBoard.setGameStarted(true);
+    for (int i = 0; i < 3; i++) {
+      largeBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, i, i));
+    }
+    BoardCheckpoint checkpoint = new BoardCheckpoint(3, largeBoard);
+
+    GameBoard restoredBoard = new GameBoard(7, 4);
+    restoredBoard.restoreCheckpoint(checkpoint);
+    assertEquals(largeBoard.getCells(), restoredBoard.getCells());
+    assertEquals(largeBoard.getTurn(), restoredBoard.getTurn());
+    assertFalse(restoredBoard.playerWonGame(testPlayer1));
+    restoredBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 3, 3));
+    assertTrue(restoredBoard.playerWonGame(testPlayer1));
+  }
+
   @Test
   public void testIsDrawWithEmptyBoard() {
     assertFalse(gameBoard.isGameDraw());
@@ -192,4 +309,20 @@ public class GameBoardTest {
     gameBoard.setGameStarted(false);
     assertFalse(gameBoard.isGameDraw());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testPlayerWonWhenPlayer1PlaysO() {
+    Player playerO = new Player('O', 1);
+    Player playerX = new Player('X', 2);
+    gameBoard.setP1(playerO);
+    gameBoard.setP2(playerX);
+    int[][] cells = {{0, 0}, {1, 1}, {0, 1}, {2, 2}, {0, 2}};
+    for (int i = 0; i < cells.length; i++) {
+      gameBoard.addMoveToBoardAndSwitchesTurns(
+          new Move(i % 2 == 0 ? playerO : playerX, cells[i][0], cells[i][1]));
+    }
+    assertTrue(gameBoard.playerWonGame(playerO));
+    assertFalse(gameBoard.playerWonGame(playerX));
+    assertFalse(gameBoard.isGameDraw());
+  }
+}
@@ -0,0 +1,219 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import models.BoardCheckpoint;
+import models.GameBoard;
+import models.Move;
+import models.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.GameDatabase;
+
+/**
+ * This class checks that games are stored apart from each other and
+ * that a database with the old table layout is migrated.
+ * @author kenyataplenty
+ *
+ */
+public class GameDatabaseTest {
+  Connection conn;
+  Player testPlayer1;
+  Player testPlayer2;
+
+  /**
+   * Opens an empty in-memory database.
+   */
+  @BeforeEach
+  public void init() throws SQLException {
+    conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+    testPlayer1 = new Player('X', 1);
+    testPlayer2 = new Player('O', 2);
+  }
+
+  @AfterEach
+  public void close() {
+    GameDatabase.closeConnection(conn);
+  }
+
+  @Test
+  public void testLegacyTablesAreMigratedToGameOne() throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("CREATE TABLE Moves (playerID INT NOT NULL, "
+          + "moveX INT NOT NULL, moveY INT NOT NULL);");
+      stmt.executeUpdate("CREATE TABLE Players (playerID INT NOT NULL, symbol CHAR(1) NOT NULL);");
+      stmt.executeUpdate("INSERT INTO Players VALUES (1, 'O'), (2, 'X');");
+      stmt.executeUpdate("INSERT INTO Moves VALUES (1, 0, 0), (2, 1, 1), (1, 0, 1), "
+          + "(2, 2, 2), (1, 0, 2);");
+    }
+
+    assertTrue(GameDatabase.migrateSchema(conn));
+    assertEquals(GameDatabase.SCHEMA_VERSION, GameDatabase.getSchemaVersion(conn));
+    assertEquals(Arrays.asList(1L), GameDatabase.retrieveGameIds(conn));
+
+    GameBoard gameBoard = GameDatabase.restoreGameBoard(conn, 1);
+    assertEquals('O', gameBoard.getP1().getType());
+    assertEquals(1, gameBoard.getWinner());
+    assertEquals(5, gameBoard.getLastMoveSeq());
+
+    // migrating again leaves the data alone
+    assertTrue(GameDatabase.migrateSchema(conn));
+    assertEquals(5, GameDatabase.retrieveMoves(conn, gameBoard).size());
+  }
+
+  @Test
+  public void testLegacyMovesWithoutPlayersAreNotMigrated() throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("CREATE TABLE Moves (playerID INT NOT NULL, "
+          + "moveX INT NOT NULL, moveY INT NOT NULL);");
+      stmt.executeUpdate("CREATE TABLE Players (playerID INT NOT NULL, symbol CHAR(1) NOT NULL);");
+      stmt.executeUpdate("INSERT INTO Moves VALUES (1, 0, 0), (2, 1, 1);");
+    }
+
+    assertTrue(GameDatabase.migrateSchema(conn));
+    assertEquals(GameDatabase.SCHEMA_VERSION, GameDatabase.getSchemaVersion(conn));
+    assertTrue(GameDatabase.retrieveGameIds(conn).isEmpty());
+    GameBoard gameBoard = new GameBoard();
+    gameBoard.setGameId(1);
+    assertTrue(GameDatabase.retrieveMoves(conn, gameBoard).isEmpty());
+  }
+
+  @Test
+  public void testGamesAreStoredApart() throws SQLException {
+    GameDatabase.migrateSchema(conn);
+    GameBoard smallGame = new GameBoard();
+    smallGame.setGameId(3);
+    GameBoard bigGame = new GameBoard(7, 4);
+    bigGame.setGameId(8);
+    for (GameBoard gameBoard : Arrays.asList(smallGame, bigGame)) {
+      GameDatabase.insertGame(conn, gameBoard.getGameId(), gameBoard.getSize(),
+          gameBoard.getWinLength());
+      GameDatabase.insertPlayer(conn, gameBoard.getGameId(), testPlayer1);
+      GameDatabase.insertPlayer(conn, gameBoard.getGameId(), testPlayer2);
+    }
+    // sequence numbers, not insertion order, decide the replay order
+    GameDatabase.insertMove(conn, 8, 2, new Move(testPlayer2, 6, 6));
+    GameDatabase.insertMove(conn, 3, 1, new Move(testPlayer1, 1, 1));
+    GameDatabase.insertMove(conn, 8, 1, new Move(testPlayer1, 5, 5));
+
+    List<Long> gameIds = GameDatabase.retrieveGameIds(conn);
+    assertEquals(Arrays.asList(3L, 8L), gameIds);
+
+    GameBoard restoredBig = GameDatabase.restoreGameBoard(conn, 8);
+    assertEquals(7, restoredBig.getSize());
+    assertEquals(4, restoredBig.getWinLength());
+    assertEquals(1, restoredBig.getTurn());
+    assertFalse(restoredBig.isValidMove(new Move(restoredBig.getP1(), 5, 5)));
+    assertFalse(restoredBig.isValidMove(new Move(restoredBig.getP1(), 6, 6)));
+    assertTrue(restoredBig.isValidMove(new Move(restoredBig.getP1(), 0, 0)));
+    assertEquals(2, restoredBig.getLastMoveSeq());
+
+    GameBoard restoredSmall = GameDatabase.restoreGameBoard(conn, 3);
+    assertEquals(1, GameDatabase.retrieveMoves(conn, restoredSmall).size());
+    assertEquals(2, restoredSmall.getTurn());
+
+    conn.setAutoCommit(false);
+    GameDatabase.deleteGame(conn, 8);
+    conn.commit();
+    assertNull(GameDatabase.restoreGameBoard(conn, 8));
+    assertEquals(Arrays.asList(3L), GameDatabase.retrieveGameIds(conn));
+  }
+
+  @Test
+  public void testRestoreReplaysOnlyMovesAfterCheckpoint() throws SQLException {
+    GameDatabase.migrateSchema(conn);
+    GameBoard gameBoard = new GameBoard();
+    gameBoard.setGameId(4);
+    gameBoard.setP1(testPlayer1);
+    gameBoard.setP2(testPlayer2);
+    gameBoard.setGameStarted(true);
+    GameDatabase.insertGame(conn, gameBoard.getGameId(), gameBoard.getSize(),
+          gameBoard.getWinLength());
+    GameDatabase.insertPlayer(conn, 4, testPlayer1);
+    GameDatabase.insertPlayer(conn, 4, testPlayer2);
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 0, 0));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer2, 1, 1));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 0, 1));
+    conn.setAutoCommit(false);
+    GameDatabase.insertCheckpoint(conn, 4, new BoardCheckpoint(3, gameBoard));
+    conn.commit();
+    // the moves covered by the checkpoint are not read again
+    GameDatabase.insertMove(conn, 4, 4, new Move(testPlayer2, 2, 2));
+    GameDatabase.insertMove(conn, 4, 5, new Move(testPlayer1, 0, 2));
+
+    GameBoard restored = GameDatabase.restoreGameBoard(conn, 4);
+    assertEquals(1, restored.getWinner());
+    assertFalse(restored.getGameStarted());
+    assertEquals("XXX.O...O", restored.getCells());
+    assertEquals(5, restored.getLastMoveSeq());
+    assertEquals(2, GameDatabase.retrieveMoves(conn, restored, 3).size());
+  }
+
+  @Test
+  public void testBulkRestoreMatchesRestoringEachGame() throws SQLException {
+    GameDatabase.migrateSchema(conn);
+    for (long gameId = 1; gameId <= 6; gameId++) {
+      GameBoard gameBoard = new GameBoard(gameId % 2 == 0 ? 5 : 3, 3);
+      gameBoard.setGameId(gameId);
+      GameDatabase.insertGame(conn, gameBoard.getGameId(), gameBoard.getSize(),
+          gameBoard.getWinLength());
+      GameDatabase.insertPlayer(conn, gameId, testPlayer1);
+      if (gameId != 3) {
+        GameDatabase.insertPlayer(conn, gameId, testPlayer2);
+      }
+      for (int seq = 1; seq <= gameId; seq++) {
+        Player player = seq % 2 == 1 ? testPlayer1 : testPlayer2;
+        GameDatabase.insertMove(conn, gameId, seq, new Move(player, seq / 3, seq % 3));
+      }
+    }
+    GameBoard checkpointed = GameDatabase.restoreGameBoard(conn, 6);
+    conn.setAutoCommit(false);
+    GameDatabase.insertCheckpoint(conn, 6, new BoardCheckpoint(6, checkpointed));
+    conn.commit();
+
+    List<GameBoard> restored = GameDatabase.restoreAllGameBoards(conn, ForkJoinPool.commonPool());
+    assertEquals(6, restored.size());
+    for (GameBoard gameBoard : restored) {
+      GameBoard expected = GameDatabase.restoreGameBoard(conn, gameBoard.getGameId());
+      assertEquals(expected.getCells(), gameBoard.getCells());
+      assertEquals(expected.getTurn(), gameBoard.getTurn());
+      assertEquals(expected.getWinner(), gameBoard.getWinner());
+      assertEquals(expected.getGameStarted(), gameBoard.getGameStarted());
+      assertEquals(expected.getLastMoveSeq(), gameBoard.getLastMoveSeq());
+    }
+    assertEquals(".XO..XO..", restored.get(3).getCells().substring(0, 9));
+  }
+
+  @Test
+  public void testBotOpponentSurvivesVersionThreeMigration() throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("CREATE TABLE Games (gameID INTEGER PRIMARY KEY, "
+          + "size INT NOT NULL, winLength INT NOT NULL);");
+      stmt.executeUpdate("INSERT INTO Games VALUES (1, 3, 3), (2, 3, 3);");
+      stmt.executeUpdate("PRAGMA user_version = 3;");
+    }
+
+    assertTrue(GameDatabase.migrateSchema(conn));
+    assertEquals(GameDatabase.SCHEMA_VERSION, GameDatabase.getSchemaVersion(conn));
+    assertFalse(GameDatabase.restoreGameBoard(conn, 1).isBotOpponent());
+
+    GameDatabase.updateBotOpponent(conn, 2);
+    conn.commit();
+    assertFalse(GameDatabase.restoreGameBoard(conn, 1).isBotOpponent());
+    assertTrue(GameDatabase.restoreGameBoard(conn, 2).isBotOpponent());
+    List<GameBoard> restored = GameDatabase.restoreAllGameBoards(conn, ForkJoinPool.commonPool());
+    assertFalse(restored.get(0).isBotOpponent());
+    assertTrue(restored.get(1).isBotOpponent());
+  }
+}
@@ -0,0 +1,170 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import controllers.GameRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import models.GameBoard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class checks that the GameRegistry restores a stored game once,
+ * on its first lookup.
+ * @author kenyaplenty
+ *
+ */
+public class GameRegistryTest {
+  GameRegistry games;
+  AtomicInteger restores;
+
+  /**
+   * Registers stored games 2 and 5 with a restorer that counts its calls.
+   */
+  @BeforeEach
+  public void init() {
+    games = new GameRegistry();
+    restores = new AtomicInteger();
+    games.restoreLazily(Arrays.asList(2L, 5L), gameId -> {
+      restores.incrementAndGet();
+      GameBoard gameBoard = new GameBoard();
+      gameBoard.setGameId(gameId);
+      return gameBoard;
+    });
+  }
+
+  @Test
+  public void testStoredGameIsRestoredOnFirstLookup() {
+    assertEquals(0, games.size());
+    assertEquals(2, games.getUnrestoredCount());
+    GameBoard gameBoard = games.get(5);
+    assertEquals(5, gameBoard.getGameId());
+    assertSame(gameBoard, games.get(5));
+    assertEquals(1, restores.get());
+    assertEquals(1, games.getUnrestoredCount());
+  }
+
+  @Test
+  public void testUnknownGameIsNotRestored() {
+    assertNull(games.get(3));
+    games.remove(2);
+    assertNull(games.get(2));
+    assertEquals(0, restores.get());
+  }
+
+  @Test
+  public void testNewGamesSkipStoredIds() {
+    assertEquals(6, games.createGame(3, 3).getGameId());
+  }
+
+  @Test
+  public void testConcurrentLookupsRestoreOnce() throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<GameBoard> found = new ArrayList<>();
+    List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread reader = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        GameBoard gameBoard = games.get(2);
+        synchronized (found) {
+          found.add(gameBoard);
+        }
+      });
+      readers.add(reader);
+      reader.start();
+    }
+    start.countDown();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    assertEquals(1, restores.get());
+    assertEquals(8, found.size());
+    for (GameBoard gameBoard : found) {
+      assertSame(found.get(0), gameBoard);
+    }
+  }
+
+  @Test
+  public void testGameRemovedDuringRestoreStaysRemoved() throws InterruptedException {
+    CountDownLatch restoring = new CountDownLatch(1);
+    CountDownLatch removed = new CountDownLatch(1);
+    games.restoreLazily(Arrays.asList(7L), gameId -> {
+      restoring.countDown();
+      try {
+        removed.await();
+      } catch (InterruptedException e) {
+        return null;
+      }
+      GameBoard gameBoard = new GameBoard();
+      gameBoard.setGameId(gameId);
+      return gameBoard;
+    });
+    AtomicReference<GameBoard> found = new AtomicReference<>();
+    Thread reader = new Thread(() -> found.set(games.get(7)));
+    reader.start();
+
+    restoring.await();
+    assertNull(games.remove(7));
+    removed.countDown();
+    reader.join();
+
+    assertNull(found.get());
+    assertNull(games.get(7));
+    assertEquals(2, games.getUnrestoredCount());
+    assertEquals(0, games.size());
+  }
+
+  @Test
+  public void testConcurrentRestoresAndRemovesNeverResurrect() throws InterruptedException {
+    List<Long> gameIds = new ArrayList<>();
+    for (long gameId = 10; gameId < 210; gameId++) {
+      gameIds.add(gameId);
+    }
+    games.restoreLazily(gameIds, gameId -> {
+      GameBoard gameBoard = new GameBoard();
+      gameBoard.setGameId(gameId);
+      return gameBoard;
+    });
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      boolean remover = i % 2 == 0;
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (long gameId : gameIds) {
+          if (remover) {
+            games.remove(gameId);
+          } else {
+            games.get(gameId);
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (long gameId : gameIds) {
+      assertNull(games.get(gameId));
+    }
+  }
+}
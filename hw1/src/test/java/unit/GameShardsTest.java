@@ -0,0 +1,74 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import controllers.GameShards;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class checks that the GameShards run the commands of one game one at
+ * a time, in order, on the same thread.
+ * @author kenyaplenty
+ *
+ */
+public class GameShardsTest {
+  GameShards shards;
+
+  /**
+   * Starts four shards.
+   */
+  @BeforeEach
+  public void init() {
+    shards = new GameShards(4);
+  }
+
+  /**
+   * Stops the shards.
+   */
+  @AfterEach
+  public void cleanUp() {
+    shards.shutdown();
+  }
+
+  @Test
+  public void testCommandsOfAGameRunInOrder() {
+    // the list is not thread-safe: only one shard thread may touch it
+    List<Integer> applied = new ArrayList<>();
+    List<CompletableFuture<Integer>> queued = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      int command = i;
+      queued.add(shards.submit(6, () -> {
+        applied.add(command);
+        return applied.size();
+      }));
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i + 1, queued.get(i).join());
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, applied.get(i));
+    }
+  }
+
+  @Test
+  public void testGamesAreOwnedByTheirShard() {
+    String thread = shards.execute(1, () -> Thread.currentThread().getName());
+    assertEquals(thread, shards.execute(5, () -> Thread.currentThread().getName()));
+    assertNotEquals(thread, shards.execute(2, () -> Thread.currentThread().getName()));
+  }
+
+  @Test
+  public void testFailureIsThrownToTheCaller() {
+    assertThrows(IllegalStateException.class, () -> shards.execute(3, () -> {
+      throw new IllegalStateException();
+    }));
+    assertEquals(4, shards.execute(3, () -> shards.getShardCount()));
+  }
+}
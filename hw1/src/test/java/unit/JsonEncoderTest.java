@@ -0,0 +1,118 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.gson.Gson;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import models.GameBoard;
+import models.JsonEncoder;
+import models.Message;
+import models.Move;
+import models.Player;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class checks that the JsonEncoder writes boards and messages byte
+ * for byte the way Gson does.
+ * @author kenyaplenty
+ *
+ */
+public class JsonEncoderTest {
+
+  private static final Gson GSON = new Gson();
+
+  private static void assertSameAsGson(GameBoard gameBoard) {
+    assertArrayEquals(GSON.toJson(gameBoard).getBytes(StandardCharsets.UTF_8),
+        JsonEncoder.toUtf8(gameBoard));
+    assertEquals(GSON.toJson(gameBoard), gameBoard.getSnapshot().getJson());
+  }
+
+  private static void assertSameAsGson(Message message) {
+    assertArrayEquals(GSON.toJson(message).getBytes(StandardCharsets.UTF_8),
+        JsonEncoder.toUtf8(message));
+    assertEquals(GSON.toJson(message), JsonEncoder.toJson(message));
+  }
+
+  @Test
+  public void testNewBoardWithoutPlayers() {
+    assertSameAsGson(new GameBoard());
+  }
+
+  @Test
+  public void testGameInProgressAndWon() {
+    GameBoard gameBoard = new GameBoard();
+    Player player1 = new Player('X', 1);
+    Player player2 = new Player('O', 2);
+    gameBoard.setGameId(123456789012L);
+    gameBoard.setP1(player1);
+    assertSameAsGson(gameBoard);
+    gameBoard.setP2(player2);
+    gameBoard.setGameStarted(true);
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(player1, 0, 0));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(player2, 1, 1));
+    assertSameAsGson(gameBoard);
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(player1, 1, 0));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(player2, 2, 2));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(player1, 2, 0));
+    gameBoard.endsGameAndSetsWinner(player1);
+    assertSameAsGson(gameBoard);
+  }
+
+  @Test
+  public void testLargeBoardWithEscapedSymbols() {
+    GameBoard gameBoard = new GameBoard(20, 5);
+    Player player1 = new Player('<', 1);
+    Player player2 = new Player('"', 2);
+    gameBoard.setP1(player1);
+    gameBoard.setP2(player2);
+    gameBoard.setGameStarted(true);
+    for (int cell = 0; cell < 40; cell++) {
+      gameBoard.addMoveToBoardAndSwitchesTurns(
+          new Move(cell % 2 == 0 ? player1 : player2, cell / 20, cell % 20));
+    }
+    assertSameAsGson(gameBoard);
+
+    for (char symbol : new char[] {'\\', '\n', '\u0001', '=', '\'', '&', '>', '\u00e9',
+        '\u20ac', '\u2028'}) {
+      GameBoard other = new GameBoard();
+      other.setP1(new Player(symbol, 1));
+      assertSameAsGson(other);
+    }
+  }
+
+  @Test
+  public void testMessages() {
+    assertSameAsGson(new Message(true, 100, ""));
+    assertSameAsGson(new Message(false, 200, null));
+    assertSameAsGson(new Message(false, -1, "Can't move <here> & \"there\"\t\u00e9\u20ac"
+        + "\ud83d\ude00\u2029"));
+  }
+
+  @Test
+  public void testConcurrentEncodesShareThePool() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<?>> encodes = new ArrayList<>();
+      for (int task = 0; task < 200; task++) {
+        int size = 3 + task % 20;
+        encodes.add(pool.submit(() -> {
+          GameBoard gameBoard = new GameBoard(size, 3);
+          gameBoard.setP1(new Player('X', 1));
+          assertSameAsGson(gameBoard);
+          assertSameAsGson(new Message(false, size, "Board of size " + size));
+        }));
+      }
+      for (Future<?> encode : encodes) {
+        encode.get();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import utils.Metrics;
+
+/**
+ * This class checks that Metrics hands out one metric per name and labels
+ * and writes it in the Prometheus text format.
+ * @author kenyaplenty
+ *
+ */
+public class MetricsTest {
+
+  @Test
+  public void testHistogramBucketsAreCumulative() {
+    Metrics.Histogram histogram = Metrics.histogram("test_latency_seconds", "Test latency",
+        "route", "/a");
+    assertSame(histogram, Metrics.histogram("test_latency_seconds", "Test latency",
+        "route", "/a"));
+    histogram.observeNanos(TimeUnit.MICROSECONDS.toNanos(50));
+    histogram.observeNanos(TimeUnit.MILLISECONDS.toNanos(2));
+    histogram.observeNanos(TimeUnit.SECONDS.toNanos(10));
+    assertEquals(3, histogram.getCount());
+
+    String text = Metrics.scrape();
+    assertTrue(text.contains("# TYPE test_latency_seconds histogram\n"));
+    assertTrue(text.contains("test_latency_seconds_bucket{route=\"/a\",le=\"1.0E-4\"} 1\n"));
+    assertTrue(text.contains("test_latency_seconds_bucket{route=\"/a\",le=\"0.001\"} 1\n"));
+    assertTrue(text.contains("test_latency_seconds_bucket{route=\"/a\",le=\"0.0025\"} 2\n"));
+    assertTrue(text.contains("test_latency_seconds_bucket{route=\"/a\",le=\"+Inf\"} 3\n"));
+    assertTrue(text.contains("test_latency_seconds_count{route=\"/a\"} 3\n"));
+  }
+
+  @Test
+  public void testCounterAndGauge() {
+    Metrics.Counter counter = Metrics.counter("test_events_total", "Test events");
+    counter.increment();
+    counter.increment();
+    Metrics.gauge("test_level", "Test level", () -> 7);
+    Metrics.gauge("test_level", "Test level", () -> 9);
+    Metrics.counter("test_kept_total", "Test kept count", () -> 5, "kind", "a");
+    Metrics.doubleGauge("test_ratio", "Test ratio", () -> 2.5);
+
+    String text = Metrics.scrape();
+    assertTrue(text.contains("test_events_total 2\n"));
+    assertTrue(text.contains("test_level 9\n"));
+    assertTrue(text.contains("# TYPE test_kept_total counter\n"));
+    assertTrue(text.contains("test_kept_total{kind=\"a\"} 5\n"));
+    assertTrue(text.contains("test_ratio 2.5\n"));
+    assertThrows(IllegalArgumentException.class,
+        () -> Metrics.histogram("test_events_total", "Test events"));
+  }
+}
@@ -0,0 +1,79 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.google.gson.Gson;
+import models.GameBoard;
+import models.Move;
+import models.MoveEvent;
+import models.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class checks the JSON a delta mode socket gets for a move.
+ * @author kenyaplenty
+ *
+ */
+public class MoveEventTest {
+  Gson gson = new Gson();
+  GameBoard gameBoard;
+  Player testPlayer1;
+  Player testPlayer2;
+
+  /**
+   * Starts a standard game with both players in it.
+   */
+  @BeforeEach
+  public void init() {
+    gameBoard = new GameBoard();
+    testPlayer1 = new Player('X', 1);
+    testPlayer2 = new Player('O', 2);
+    gameBoard.setP1(testPlayer1);
+    gameBoard.setP2(testPlayer2);
+    gameBoard.setGameStarted(true);
+  }
+
+  /**
+   * Applies a move to the board and returns its event.
+   */
+  private MoveEvent play(Move move) {
+    long previousVersion = gameBoard.getVersion();
+    gameBoard.addMoveToBoardAndSwitchesTurns(move);
+    return new MoveEvent(previousVersion, move, gameBoard);
+  }
+
+  @Test
+  public void testEventUsesShortFieldNames() {
+    long before = gameBoard.getVersion();
+    MoveEvent event = play(new Move(testPlayer1, 1, 2));
+    assertEquals(before, event.getPreviousVersion());
+    assertEquals(gameBoard.getVersion(), event.getVersion());
+    assertEquals("{\"pv\":" + before + ",\"v\":" + gameBoard.getVersion()
+        + ",\"x\":1,\"y\":2,\"s\":\"X\",\"t\":2,\"w\":0,\"d\":false}", gson.toJson(event));
+  }
+
+  @Test
+  public void testEventsChainVersions() {
+    MoveEvent first = play(new Move(testPlayer1, 0, 0));
+    MoveEvent second = play(new Move(testPlayer2, 1, 1));
+    assertEquals(first.getVersion(), second.getPreviousVersion());
+    assertEquals("O", gson.toJsonTree(second).getAsJsonObject().get("s").getAsString());
+  }
+
+  @Test
+  public void testEventOfWinningMove() {
+    play(new Move(testPlayer1, 0, 0));
+    play(new Move(testPlayer2, 1, 1));
+    play(new Move(testPlayer1, 1, 0));
+    play(new Move(testPlayer2, 2, 2));
+    Move winning = new Move(testPlayer1, 2, 0);
+    long previousVersion = gameBoard.getVersion();
+    gameBoard.addMoveToBoardAndSwitchesTurns(winning);
+    gameBoard.endsGameAndSetsWinner(testPlayer1);
+    MoveEvent event = new MoveEvent(previousVersion, winning, gameBoard);
+    assertEquals(1, gson.toJsonTree(event).getAsJsonObject().get("w").getAsInt());
+    assertFalse(gson.toJsonTree(event).getAsJsonObject().get("d").getAsBoolean());
+  }
+}
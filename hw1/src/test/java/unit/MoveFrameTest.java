@@ -0,0 +1,53 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import models.MoveFrame;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class checks how binary move frames are read and written.
+ * @author kenyaplenty
+ *
+ */
+public class MoveFrameTest {
+
+  @Test
+  public void testDecodeReadsFrameAtOffset() {
+    byte[] data = {9, 9, 2, 1, 0, 9};
+    MoveFrame frame = MoveFrame.decode(data, 2, MoveFrame.LENGTH);
+    assertEquals(2, frame.getPlayerId());
+    assertEquals(1, frame.getMoveX());
+    assertEquals(0, frame.getMoveY());
+  }
+
+  @Test
+  public void testDecodeRejectsWrongLength() {
+    byte[] data = {1, 0, 0, 0};
+    assertNull(MoveFrame.decode(data, 0, 2));
+    assertNull(MoveFrame.decode(data, 0, 4));
+    assertNull(MoveFrame.decode(new byte[0], 0, 0));
+  }
+
+  @Test
+  public void testDecodeReadsBytesUnsigned() {
+    MoveFrame frame = MoveFrame.decode(new byte[] {1, (byte) 0xFF, (byte) 0x80}, 0, 3);
+    assertEquals(255, frame.getMoveX());
+    assertEquals(128, frame.getMoveY());
+  }
+
+  @Test
+  public void testEncodeRoundTrips() {
+    byte[] data = new MoveFrame(1, 24, 200).encode();
+    assertArrayEquals(new byte[] {1, 24, (byte) 200}, data);
+    MoveFrame frame = MoveFrame.decode(data, 0, data.length);
+    assertEquals(1, frame.getPlayerId());
+    assertEquals(24, frame.getMoveX());
+    assertEquals(200, frame.getMoveY());
+    assertThrows(IllegalArgumentException.class, () -> new MoveFrame(1, -1, 0).encode());
+    assertThrows(IllegalArgumentException.class, () -> new MoveFrame(1, 0, 256).encode());
+  }
+}
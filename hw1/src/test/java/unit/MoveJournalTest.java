@@ -0,0 +1,163 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import models.GameBoard;
+import models.Move;
+import models.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.ConnectionPool;
+import utils.GameDatabase;
+import utils.GameStore;
+import utils.MoveJournal;
+import utils.SqliteGameStore;
+
+/**
+ * This class checks that the MoveJournal stores every write and shares
+ * commits between writers.
+ * @author kenyataplenty
+ *
+ */
+public class MoveJournalTest {
+  Path databaseFile;
+  GameStore store;
+  Connection conn;
+  GameBoard testGame;
+  Player testPlayer1;
+  Player testPlayer2;
+
+  /**
+   * Opens a store on an empty database, and a connection to read what it wrote.
+   */
+  @BeforeEach
+  public void init() throws IOException {
+    databaseFile = Files.createTempFile("journal", ".db");
+    String url = "jdbc:sqlite:" + databaseFile;
+    store = new SqliteGameStore(new ConnectionPool(url, 2));
+    conn = GameDatabase.createConnection(url);
+    testGame = new GameBoard();
+    testGame.setGameId(1);
+    testPlayer1 = new Player('X', 1);
+    testPlayer2 = new Player('O', 2);
+  }
+
+  /**
+   * Closes the database and deletes its files.
+   */
+  @AfterEach
+  public void close() throws IOException {
+    GameDatabase.closeConnection(conn);
+    store.close();
+    for (String suffix : new String[] {"", "-wal", "-shm"}) {
+      Files.deleteIfExists(Paths.get(databaseFile + suffix));
+    }
+  }
+
+  @Test
+  public void testSyncWritesAreCommittedBeforeReturning() {
+    MoveJournal journal = new MoveJournal(store, MoveJournal.Durability.SYNC);
+    assertTrue(journal.addGame(testGame).join());
+    assertTrue(journal.addPlayer(1, testPlayer1).join());
+    assertTrue(journal.addPlayer(1, testPlayer2).join());
+    assertTrue(journal.addMove(1, testGame.nextMoveSeq(), new Move(testPlayer1, 1, 1)).join());
+    journal.close();
+
+    GameBoard gameBoard = store.restoreGameBoard(1);
+    assertEquals('X', gameBoard.getP1().getType());
+    assertEquals('O', gameBoard.getP2().getType());
+    assertEquals(2, gameBoard.getTurn());
+  }
+
+  @Test
+  public void testConcurrentWritesShareCommits() throws InterruptedException {
+    MoveJournal journal = new MoveJournal(store, MoveJournal.Durability.SYNC);
+    journal.addPlayer(1, testPlayer1);
+    journal.addPlayer(1, testPlayer2);
+    AtomicLong seq = new AtomicLong();
+    List<Thread> writers = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread writer = new Thread(() -> {
+        for (int j = 0; j < 50; j++) {
+          journal.addMove(1, seq.incrementAndGet(), new Move(testPlayer1, 0, 0));
+        }
+      });
+      writers.add(writer);
+      writer.start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    journal.close();
+
+    assertEquals(402, journal.getWriteCount());
+    assertTrue(journal.getBatchCount() <= journal.getWriteCount());
+    assertEquals(400, GameDatabase.retrieveMoves(conn, testGame).size());
+  }
+
+  @Test
+  public void testAsyncWritesAreFlushedOnClose() {
+    MoveJournal journal = new MoveJournal(store, MoveJournal.Durability.ASYNC);
+    journal.addPlayer(1, testPlayer1);
+    for (int i = 0; i < 100; i++) {
+      journal.addMove(1, testGame.nextMoveSeq(), new Move(testPlayer1, 2, 2));
+    }
+    journal.close();
+    assertEquals(100, GameDatabase.retrieveMoves(conn, testGame).size());
+  }
+
+  @Test
+  public void testMemoryDurabilityWritesNothing() {
+    MoveJournal journal = new MoveJournal(store, MoveJournal.Durability.MEMORY);
+    assertTrue(journal.addMove(1, testGame.nextMoveSeq(), new Move(testPlayer1, 0, 0)).join());
+    journal.close();
+    assertEquals(0, GameDatabase.retrieveMoves(conn, testGame).size());
+    assertEquals(0, journal.getBatchCount());
+  }
+
+  @Test
+  public void testFailedCommitIsRolledBack() {
+    AtomicBoolean failNextCommit = new AtomicBoolean(true);
+    GameStore failingStore = (GameStore) Proxy.newProxyInstance(
+        GameStore.class.getClassLoader(), new Class<?>[] {GameStore.class},
+        (proxy, method, args) -> {
+          if ("commit".equals(method.getName()) && failNextCommit.getAndSet(false)) {
+            throw new IOException("disk full");
+          }
+          try {
+            return method.invoke(store, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        });
+    MoveJournal journal = new MoveJournal(failingStore, MoveJournal.Durability.SYNC);
+    assertFalse(journal.addMove(1, testGame.nextMoveSeq(), new Move(testPlayer1, 0, 0)).join());
+    assertTrue(journal.addMove(1, testGame.nextMoveSeq(), new Move(testPlayer1, 1, 1)).join());
+    journal.close();
+
+    List<Move> moves = GameDatabase.retrieveMoves(conn, testGame);
+    assertEquals(1, moves.size());
+    assertEquals(1, moves.get(0).getMoveX());
+  }
+
+  @Test
+  public void testWritesAfterCloseFail() {
+    MoveJournal journal = new MoveJournal(store, MoveJournal.Durability.SYNC);
+    journal.close();
+    assertFalse(journal.addMove(1, testGame.nextMoveSeq(), new Move(testPlayer1, 0, 0)).join());
+  }
+}
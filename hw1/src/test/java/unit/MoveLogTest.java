@@ -0,0 +1,144 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import models.GameBoard;
+import models.Move;
+import models.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.MoveLog;
+
+/**
+ * This class checks that the MoveLog gives back what was written to it
+ * after a restart, and throws away a record torn by a crash.
+ * @author kenyaplenty
+ *
+ */
+public class MoveLogTest {
+  Path directory;
+  Player testPlayer1;
+  Player testPlayer2;
+
+  /**
+   * Creates an empty directory for the segment files.
+   */
+  @BeforeEach
+  public void init() throws IOException {
+    directory = Files.createTempDirectory("move-log");
+    testPlayer1 = new Player('X', 1);
+    testPlayer2 = new Player('O', 2);
+  }
+
+  /**
+   * Deletes the segment files.
+   */
+  @AfterEach
+  public void cleanUp() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+    }
+  }
+
+  /**
+   * Writes a game where player 1 wins down the first column.
+   */
+  private void writeWonGame(MoveLog log, long gameId) throws IOException {
+    log.addGame(gameId, 3, 3);
+    log.addPlayer(gameId, testPlayer1);
+    log.addPlayer(gameId, testPlayer2);
+    log.addMove(gameId, 1, new Move(testPlayer1, 0, 0));
+    log.addMove(gameId, 2, new Move(testPlayer2, 1, 1));
+    log.addMove(gameId, 3, new Move(testPlayer1, 1, 0));
+    log.addMove(gameId, 4, new Move(testPlayer2, 2, 2));
+    log.addMove(gameId, 5, new Move(testPlayer1, 2, 0));
+    log.commit();
+  }
+
+  @Test
+  public void testGamesAreRecoveredAfterRestart() throws IOException {
+    MoveLog log = new MoveLog(directory, MoveLog.DEFAULT_SEGMENT_SIZE);
+    writeWonGame(log, 1);
+    writeWonGame(log, 2);
+    log.addBotOpponent(1);
+    log.deleteGame(2);
+    log.addGame(3, 7, 4);
+    log.addPlayer(3, testPlayer1);
+    log.commit();
+    log.close();
+
+    MoveLog reopened = new MoveLog(directory, MoveLog.DEFAULT_SEGMENT_SIZE);
+    assertEquals(20, reopened.getRecoveredRecords());
+    assertEquals(0, reopened.getDiscardedRecords());
+    assertEquals(Arrays.asList(1L, 3L), reopened.retrieveGameIds());
+
+    GameBoard gameBoard = reopened.restoreGameBoard(1);
+    assertEquals(1, gameBoard.getWinner());
+    assertEquals(5, gameBoard.getLastMoveSeq());
+    assertTrue(gameBoard.isBotOpponent());
+    assertEquals(7, reopened.restoreGameBoard(3).getSize());
+    assertFalse(reopened.restoreGameBoard(3).isBotOpponent());
+    assertNull(reopened.restoreGameBoard(2));
+    assertEquals(2, reopened.restoreAllGameBoards(ForkJoinPool.commonPool()).size());
+    reopened.close();
+  }
+
+  @Test
+  public void testTornRecordIsDiscarded() throws IOException {
+    MoveLog log = new MoveLog(directory, MoveLog.DEFAULT_SEGMENT_SIZE);
+    writeWonGame(log, 1);
+    log.close();
+
+    // damage the winning move as if the crash happened while it was written
+    Path segment;
+    try (Stream<Path> files = Files.list(directory)) {
+      segment = files.findFirst().get();
+    }
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      file.seek(7 * MoveLog.RECORD_SIZE + 12);
+      file.write(0x7F);
+    }
+
+    MoveLog reopened = new MoveLog(directory, MoveLog.DEFAULT_SEGMENT_SIZE);
+    assertEquals(7, reopened.getRecoveredRecords());
+    assertEquals(1, reopened.getDiscardedRecords());
+    GameBoard gameBoard = reopened.restoreGameBoard(1);
+    assertEquals(0, gameBoard.getWinner());
+    assertEquals(4, gameBoard.getLastMoveSeq());
+
+    // the next write takes the place of the torn one
+    reopened.addMove(1, 5, new Move(testPlayer1, 2, 0));
+    reopened.commit();
+    reopened.close();
+    MoveLog repaired = new MoveLog(directory, MoveLog.DEFAULT_SEGMENT_SIZE);
+    assertEquals(1, repaired.restoreGameBoard(1).getWinner());
+    repaired.close();
+  }
+
+  @Test
+  public void testRecordsRollOverToNewSegments() throws IOException {
+    MoveLog log = new MoveLog(directory, 4 * MoveLog.RECORD_SIZE);
+    writeWonGame(log, 1);
+    log.close();
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(2, files.count());
+    }
+
+    MoveLog reopened = new MoveLog(directory, 4 * MoveLog.RECORD_SIZE);
+    assertEquals(8, reopened.getRecoveredRecords());
+    assertEquals(1, reopened.restoreGameBoard(1).getWinner());
+    reopened.close();
+  }
+}
@@ -0,0 +1,64 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import models.BitBoard;
+import models.GameBoard;
+import models.Move;
+import models.Player;
+import models.PositionIndex;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class checks that the PositionIndex gives symmetric positions one ID
+ * and answers status and free cells in the orientation that was asked.
+ * @author kenyaplenty
+ *
+ */
+public class PositionIndexTest {
+
+  @Test
+  public void testReachablePositionsUpToSymmetry() {
+    // the well known count of tic tac toe positions up to rotation and reflection
+    assertEquals(765, PositionIndex.getPositionCount());
+  }
+
+  @Test
+  public void testSymmetricPositionsShareId() {
+    int corner = PositionIndex.canonicalId(PositionIndex.encode(BitBoard.cellBit(0, 0), 0));
+    assertEquals(corner,
+        PositionIndex.canonicalId(PositionIndex.encode(BitBoard.cellBit(2, 2), 0)));
+    assertEquals(corner,
+        PositionIndex.canonicalId(PositionIndex.encode(BitBoard.cellBit(0, 2), 0)));
+    assertNotEquals(corner,
+        PositionIndex.canonicalId(PositionIndex.encode(BitBoard.cellBit(1, 1), 0)));
+    assertEquals(PositionIndex.UNREACHABLE,
+        PositionIndex.canonicalId(PositionIndex.encode(0, BitBoard.cellBit(1, 1))));
+  }
+
+  @Test
+  public void testFreeCellsFollowOrientation() {
+    int first = BitBoard.cellBit(0, 1);
+    int second = BitBoard.cellBit(2, 2);
+    int code = PositionIndex.encode(first, second);
+    assertEquals(~(first | second) & BitBoard.FULL_BOARD, PositionIndex.getFreeCells(code));
+    assertEquals(PositionIndex.IN_PROGRESS, PositionIndex.getStatus(code));
+  }
+
+  @Test
+  public void testStatusOfGameBoard() {
+    GameBoard gameBoard = new GameBoard();
+    Player testPlayer1 = new Player('O', 1);
+    Player testPlayer2 = new Player('X', 2);
+    gameBoard.setP1(testPlayer1);
+    gameBoard.setGameStarted(true);
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 0, 2));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer2, 0, 0));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 1, 1));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer2, 1, 0));
+    gameBoard.addMoveToBoardAndSwitchesTurns(new Move(testPlayer1, 2, 0));
+    assertEquals(PositionIndex.FIRST_PLAYER_WON,
+        PositionIndex.getStatus(PositionIndex.encode(gameBoard)));
+  }
+}
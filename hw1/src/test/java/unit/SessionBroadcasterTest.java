@@ -0,0 +1,84 @@
+package unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import controllers.SessionBroadcaster;
+import controllers.SessionBroadcaster.SlowConsumerPolicy;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * This class checks that the SessionBroadcaster never blocks and handles
+ * clients that stop reading.
+ * @author kenyataplenty
+ *
+ */
+public class SessionBroadcasterTest {
+  Session stalledSession;
+  RemoteEndpoint stalledRemote;
+
+  /**
+   * Creates a session whose sends never complete, like a client that stopped reading.
+   */
+  @BeforeEach
+  public void init() {
+    stalledSession = mock(Session.class);
+    stalledRemote = mock(RemoteEndpoint.class);
+    when(stalledSession.getRemote()).thenReturn(stalledRemote);
+    when(stalledSession.isOpen()).thenReturn(true);
+  }
+
+  @Test
+  public void testDropOldestKeepsLatestMessage() {
+    SessionBroadcaster broadcaster = new SessionBroadcaster(2, SlowConsumerPolicy.DROP_OLDEST);
+    for (int i = 1; i <= 5; i++) {
+      broadcaster.send(stalledSession, "board" + i);
+    }
+    // board1 is in flight, board2 and board3 were pushed out by board4 and board5
+    verify(stalledRemote, times(1)).sendString(anyString(), any(WriteCallback.class));
+    assertEquals(2, broadcaster.getDroppedCount());
+    verify(stalledSession, never()).close(anyInt(), anyString());
+  }
+
+  @Test
+  public void testDisconnectClosesSlowSession() {
+    SessionBroadcaster broadcaster = new SessionBroadcaster(2, SlowConsumerPolicy.DISCONNECT);
+    for (int i = 1; i <= 4; i++) {
+      broadcaster.send(stalledSession, "board" + i);
+    }
+    verify(stalledSession).close(anyInt(), anyString());
+    assertEquals(1, broadcaster.getDisconnectedCount());
+  }
+
+  @Test
+  public void testQueuedMessagesAreSentInOrder() {
+    Session session = mock(Session.class);
+    RemoteEndpoint remote = mock(RemoteEndpoint.class);
+    when(session.getRemote()).thenReturn(remote);
+    when(session.isOpen()).thenReturn(true);
+    SessionBroadcaster broadcaster = new SessionBroadcaster(4, SlowConsumerPolicy.DROP_OLDEST);
+    broadcaster.send(session, "board1");
+    broadcaster.send(session, "board2");
+
+    ArgumentCaptor<WriteCallback> callback = ArgumentCaptor.forClass(WriteCallback.class);
+    verify(remote).sendString(eq("board1"), callback.capture());
+    verify(remote, never()).sendString(eq("board2"), any(WriteCallback.class));
+
+    callback.getValue().writeSuccess();
+    verify(remote).sendString(eq("board2"), any(WriteCallback.class));
+    assertEquals(1, broadcaster.getSentCount());
+  }
+}